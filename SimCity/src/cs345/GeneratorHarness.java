@@ -0,0 +1,243 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345;
+
+import cs345.model.MapGenerator;
+import cs345.model.Terrain;
+import cs345.model.TerrainGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/* Determinism and throughput harness for the map generators.
+ *
+ * Usage: java cs345.GeneratorHarness [check [golden] | record golden | bench]
+ *
+ *   check   Generate the maps for every case in the matrix below, hash the
+ *           terrain of each, and compare the hashes with the golden file.
+ *           The golden file defaults to the resource GOLDEN_FILE. Exits with
+ *           status 1 if any hash differs or is missing. This is the default.
+ *   record  Generate the maps and write their hashes to the golden file.
+ *           Only do this when a change to the maps is intended.
+ *   bench   Generate maps of several sizes for each kind of generator and
+ *           report maps per second and the bytes allocated per map.
+ *
+ * The matrix covers the classic, tiled and noise generators, several seeds
+ * and sizes, each CreateIsland setting and several tree, curve and lake
+ * levels. The classic and tiled generators are run with each island shape;
+ * the cases for the FIELD shape have "shape=FIELD" in their keys and follow
+ * all the STAMPED cases. Each case generates MAPS_PER_CASE maps in a row from one
+ * generator, since a generator's later maps depend on its earlier ones.
+ * The properties are set here rather than read from the properties file so
+ * the hashes do not change when the game's defaults do.
+ */
+public class GeneratorHarness {
+
+    private static final String GOLDEN_FILE = "mapgenerator.golden";
+
+    private static final String[] MODES = { "CLASSIC", "TILED", "NOISE" };
+    private static final String[] SHAPES = { "STAMPED", "FIELD" };
+    private static final long[] SEEDS = { 1, 42, 65535 };
+    private static final int[][] SIZES = { { 40, 35 }, { 120, 100 }, { 57, 203 } };
+    private static final int[][] LEVELS = { { -1, -1, -1 }, { 0, 0, 0 }, { 20, 8, 4 } };
+    private static final int MAPS_PER_CASE = 2;
+
+    private static final int[][] BENCH_SIZES = { { 40, 35 }, { 256, 256 }, { 1024, 1024 } };
+    private static final long BENCH_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "check";
+        switch (command) {
+            case "check":
+                System.exit(check(args.length > 1 ? args[1] : null) ? 0 : 1);
+                break;
+            case "record":
+                if (args.length < 2) {
+                    System.err.println("record needs the golden file name");
+                    System.exit(2);
+                }
+                record(args[1]);
+                break;
+            case "bench":
+                bench();
+                break;
+            default:
+                System.err.println("Unknown command: " + command);
+                System.exit(2);
+        }
+    }
+
+    /* Compare the hashes of the matrix with the golden file. */
+    private static boolean check(String goldenName) throws IOException {
+        Map<String, String> golden = readGolden(goldenName);
+        Map<String, String> hashes = hashMatrix();
+        int failures = 0;
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            String expected = golden.get(entry.getKey());
+            if (!entry.getValue().equals(expected)) {
+                System.out.println("MISMATCH " + entry.getKey() + ": expected " + expected +
+                        ", got " + entry.getValue());
+                failures++;
+            }
+        }
+        System.out.println(hashes.size() + " maps, " + failures + " mismatches");
+        return failures == 0;
+    }
+
+    /* Write the hashes of the matrix to the golden file. */
+    private static void record(String goldenName) throws IOException {
+        Map<String, String> hashes = hashMatrix();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(goldenName)))) {
+            out.println("# Terrain hashes for GeneratorHarness: case, SHA-256 of the terrain codes");
+            hashes.forEach((key, hash) -> out.println(key + " " + hash));
+        }
+        System.out.println(hashes.size() + " maps recorded in " + goldenName);
+    }
+
+    /* Read the golden file, or the GOLDEN_FILE resource if name is null. */
+    private static Map<String, String> readGolden(String name) throws IOException {
+        InputStream in = name != null ? Files.newInputStream(Paths.get(name))
+                : GeneratorHarness.class.getResourceAsStream(GOLDEN_FILE);
+        if (in == null) {
+            throw new AssertionError("Could not access golden file: " + GOLDEN_FILE);
+        }
+        Map<String, String> golden = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.lastIndexOf(' ');
+                if (line.startsWith("#") || space < 0)
+                    continue;
+                golden.put(line.substring(0, space), line.substring(space + 1));
+            }
+        }
+        return golden;
+    }
+
+    /* Generate every map of the matrix and return the hashes by case. */
+    private static Map<String, String> hashMatrix() {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (String shape : SHAPES) {
+            for (String mode : MODES) {
+                // The noise generator has no island shape
+                if (mode.equals("NOISE") && !shape.equals("STAMPED"))
+                    continue;
+                String[] islands = mode.equals("NOISE") ? new String[] { "NEVER" }
+                        : new String[] { "NEVER", "SELDOM", "ALWAYS" };
+                String name = shape.equals("STAMPED") ? mode : mode + " shape=" + shape;
+                for (long seed : SEEDS) {
+                    for (int[] size : SIZES) {
+                        for (String island : islands) {
+                            for (int[] levels : LEVELS) {
+                                Properties props = properties(mode, shape, seed, island, levels);
+                                TerrainGenerator generator = TerrainGenerator.newGenerator(props);
+                                String key = name + " seed=" + seed + " size=" + size[0] + "x" +
+                                        size[1] + " island=" + island + " levels=" +
+                                        levels[0] + "," + levels[1] + "," + levels[2];
+                                for (int n = 0; n < MAPS_PER_CASE; n++) {
+                                    Terrain terrain = new Terrain(size[0], size[1]);
+                                    generator.generateTerrain(terrain);
+                                    hashes.put(key + " map=" + n, hash(terrain));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /* Report the speed of each kind of generator. */
+    private static void bench() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation =
+                threads instanceof com.sun.management.ThreadMXBean
+                        ? (com.sun.management.ThreadMXBean)threads : null;
+        long thread = Thread.currentThread().getId();
+        for (String mode : MODES) {
+            for (int[] size : BENCH_SIZES) {
+                Properties props = properties(mode, "STAMPED", 1, "NEVER", LEVELS[0]);
+                TerrainGenerator generator = TerrainGenerator.newGenerator(props);
+                Terrain terrain = new Terrain(size[0], size[1]);
+                // Warm up for a quarter of the time
+                long end = System.nanoTime() + BENCH_NANOS / 4;
+                while (System.nanoTime() < end) {
+                    generator.generateTerrain(terrain);
+                }
+                int maps = 0;
+                long bytes = allocation != null ? allocation.getThreadAllocatedBytes(thread) : 0;
+                long start = System.nanoTime();
+                end = start + BENCH_NANOS;
+                long now;
+                do {
+                    generator.generateTerrain(terrain);
+                    maps++;
+                    now = System.nanoTime();
+                } while (now < end);
+                bytes = allocation != null ? allocation.getThreadAllocatedBytes(thread) - bytes : -1;
+                System.out.printf("%-7s %5dx%-5d %10.1f maps/s %12d bytes/map%n", mode,
+                        size[0], size[1], maps / ((now - start) / 1e9),
+                        bytes < 0 ? -1 : bytes / maps);
+            }
+        }
+        System.out.println("Bytes are those allocated by the calling thread; the " +
+                "worker threads of TILED and NOISE are not counted.");
+    }
+
+    /* Properties for one case of the matrix. */
+    private static Properties properties(String mode, String shape, long seed, String island,
+                                         int[] levels) {
+        Properties props = new Properties();
+        props.setProperty(TerrainGenerator.TYPE_PROP, mode.equals("NOISE") ? "NOISE" : "CLASSIC");
+        props.setProperty(MapGenerator.TILED_PROP, Boolean.toString(mode.equals("TILED")));
+        props.setProperty(MapGenerator.TILE_SIZE_PROP, "64");
+        props.setProperty(MapGenerator.CREATE_ISLAND_PROP, island);
+        props.setProperty(MapGenerator.ISLAND_SHAPE_PROP, shape);
+        props.setProperty(MapGenerator.TREE_LEVEL_PROP, Integer.toString(levels[0]));
+        props.setProperty(MapGenerator.CURVE_LEVEL_PROP, Integer.toString(levels[1]));
+        props.setProperty(MapGenerator.LAKE_LEVEL_PROP, Integer.toString(levels[2]));
+        props.setProperty(MapGenerator.RANDOM_SEED_PROP, Long.toString(seed));
+        return props;
+    }
+
+    /* Hex SHA-256 of the size and terrain codes of a map. */
+    private static String hash(Terrain terrain) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] row = new byte[terrain.getWidth()];
+            digest.update((terrain.getWidth() + "x" + terrain.getHeight()).getBytes(StandardCharsets.UTF_8));
+            for (int y = 0; y < terrain.getHeight(); y++) {
+                for (int x = 0; x < terrain.getWidth(); x++) {
+                    row[x] = terrain.get(x, y);
+                }
+                digest.update(row);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridRectangle;
+import cs345.model.LandValue;
+import cs345.model.ModelNewGridCommand;
+
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Random;
+
+/* Benchmark of the full and incremental recomputation of the land value.
+ *
+ * Usage: java cs345.LandValueBench [size ...]
+ *
+ * For each size (default 256 and 1024) a square game is made with the map
+ * generator settings of the properties file. The land value of the whole
+ * grid is then recomputed, as for a new map, and recomputed for small
+ * rectangles at random places, as for building a zone or bulldozing woods.
+ * The time for each is reported.
+ */
+public class LandValueBench {
+
+    private static final int[] SIZES = { 256, 1024 };
+    private static final long BENCH_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int size : sizes) {
+            LandValue landValue = newGame(size).getLandValue();
+            Random random = new Random(1);
+            double full = time(() -> landValue.recomputeAll());
+            double incremental = time(() -> landValue.recompute(new GridRectangle(
+                    random.nextInt(size - 3), random.nextInt(size - 3), 3, 3)));
+            System.out.printf("%5dx%-5d full %9.3f ms  incremental 3x3 %7.3f ms  ratio %6.0f%n",
+                    size, size, full, incremental, full / incremental);
+        }
+    }
+
+    /* A game of the given size with a new map. */
+    private static Cs345Opolis newGame(int size) throws Exception {
+        Properties props = new Properties();
+        try (InputStream in = Main.class.getResourceAsStream(Main.PROPERTIES_FILE)) {
+            if (in == null) {
+                throw new AssertionError("Could not access properties file: " + Main.PROPERTIES_FILE);
+            }
+            props.load(in);
+        }
+        props.setProperty(Cs345Opolis.GRID_WIDTH, Integer.toString(size));
+        props.setProperty(Cs345Opolis.GRID_HEIGHT, Integer.toString(size));
+        Cs345Opolis model = Cs345Opolis.newCity(props);
+        new ModelNewGridCommand(true).run(model);
+        return model;
+    }
+
+    /* Mean milliseconds for the action, after warming up. */
+    private static double time(Runnable action) {
+        long end = System.nanoTime() + BENCH_NANOS / 4;
+        while (System.nanoTime() < end) {
+            action.run();
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        end = start + BENCH_NANOS;
+        long now;
+        do {
+            action.run();
+            runs++;
+            now = System.nanoTime();
+        } while (now < end);
+        return (now - start) / 1e6 / runs;
+    }
+}
@@ -0,0 +1,251 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345;
+
+import cs345.model.BitGrid;
+import cs345.model.MapGenerator;
+import cs345.model.NeighborhoodRule;
+import cs345.model.Terrain;
+
+import java.util.Random;
+
+/* Check and benchmark of the tree smoothing on packed bits.
+ *
+ * Usage: java cs345.TreeSmoothBench [check | bench [size]]
+ *
+ *   check   Compare BitGrid.step with the same rules applied one cell at a
+ *           time to a byte per cell, and MapGenerator.smoothWoods with the
+ *           byte smoothing it replaced, on random grids of odd sizes. Exits
+ *           with status 1 if any result differs. This is the default.
+ *   bench   Time the byte smoothing, smoothWoods and its packing and
+ *           unpacking, and one BitGrid.step, on a square map of the given
+ *           size (default 2000) that is 45% woods and 10% river. The times
+ *           are means after warming up and leave out copying the map.
+ */
+public class TreeSmoothBench {
+
+    private static final int CHECK_GRIDS = 3000;
+    private static final int BENCH_SIZE = 2000;
+    private static final long BENCH_NANOS = 2_000_000_000L;
+
+    /* A rule for one cell, given the cell and its four neighbors. */
+    @FunctionalInterface
+    private interface CellRule {
+        boolean apply(boolean center, boolean left, boolean right, boolean up, boolean down);
+    }
+
+    /* Rules written both ways. They cover the carries between words in
+     * both directions and the bits past the end of each row.
+     */
+    private static final NeighborhoodRule[] WORD_RULES = {
+            (c, l, r, u, d) -> c & (l | r) & (u | d),
+            (c, l, r, u, d) -> ~c & (l ^ r ^ u ^ d),
+            (c, l, r, u, d) -> l | u,
+            (c, l, r, u, d) -> r & ~d
+    };
+    private static final CellRule[] CELL_RULES = {
+            (c, l, r, u, d) -> c && (l || r) && (u || d),
+            (c, l, r, u, d) -> !c && (l ^ r ^ u ^ d),
+            (c, l, r, u, d) -> l || u,
+            (c, l, r, u, d) -> r && !d
+    };
+
+    /* The byte smoothing's new code for a woods cell, indexed by whether
+     * there are woods to the left, below, right and above.
+     */
+    private static final byte[] TEdTab = new byte[] {
+            Terrain.DIRT,  Terrain.DIRT,  Terrain.DIRT,  Terrain.WOODS,
+            Terrain.DIRT,  Terrain.DIRT,  Terrain.WOODS, Terrain.WOODS,
+            Terrain.DIRT,  Terrain.WOODS, Terrain.DIRT,  Terrain.WOODS,
+            Terrain.WOODS, Terrain.WOODS, Terrain.WOODS, Terrain.WOODS };
+    private static final int[] DX = { -1, 0, 1, 0 };
+    private static final int[] DY = { 0, 1, 0, -1 };
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "check";
+        switch (command) {
+            case "check":
+                System.exit(check() ? 0 : 1);
+                break;
+            case "bench":
+                bench(args.length > 1 ? Integer.parseInt(args[1]) : BENCH_SIZE);
+                break;
+            default:
+                System.err.println("Unknown command: " + command);
+                System.exit(2);
+        }
+    }
+
+    /* Compare the packed results with the byte results. */
+    private static boolean check() {
+        Random random = new Random(1);
+        int stepFailures = 0;
+        for (int n = 0; n < CHECK_GRIDS; n++) {
+            int width = 1 + random.nextInt(300);
+            int height = 1 + random.nextInt(30);
+            byte[] cells = new byte[width * height];
+            BitGrid grid = new BitGrid(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean value = random.nextBoolean();
+                    cells[x + width * y] = (byte)(value ? 1 : 0);
+                    grid.set(x, y, value);
+                }
+            }
+            int r = n % WORD_RULES.length;
+            BitGrid result = new BitGrid(width, height);
+            grid.step(WORD_RULES[r], result);
+            int expectedCount = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean expected = CELL_RULES[r].apply(at(cells, width, height, x, y),
+                            at(cells, width, height, x - 1, y), at(cells, width, height, x + 1, y),
+                            at(cells, width, height, x, y - 1), at(cells, width, height, x, y + 1));
+                    if (expected) {
+                        expectedCount++;
+                    }
+                    if (result.get(x, y) != expected) {
+                        stepFailures++;
+                    }
+                }
+            }
+            // The bits past the end of each row must stay clear
+            if (result.count() != expectedCount) {
+                stepFailures++;
+            }
+        }
+        System.out.println(CHECK_GRIDS + " grids stepped, " + stepFailures + " mismatches");
+
+        int smoothFailures = 0;
+        for (int n = 0; n < CHECK_GRIDS; n++) {
+            int width = 1 + random.nextInt(200);
+            int height = 1 + random.nextInt(40);
+            Terrain terrain = randomTerrain(width, height, random.nextDouble(), random);
+            Terrain expected = copy(terrain);
+            byteSmooth(expected);
+            byteSmooth(expected);
+            MapGenerator.smoothWoods(terrain);
+            if (!sameTerrain(terrain, expected)) {
+                smoothFailures++;
+            }
+        }
+        System.out.println(CHECK_GRIDS + " maps smoothed, " + smoothFailures + " mismatches");
+        return stepFailures == 0 && smoothFailures == 0;
+    }
+
+    /* Time the smoothing both ways. */
+    private static void bench(int size) {
+        Terrain base = randomTerrain(size, size, 0.45, new Random(7));
+        Terrain work = new Terrain(size, size);
+        double copy = time(() -> copyInto(base, work));
+        double bytes = time(() -> {
+            copyInto(base, work);
+            byteSmooth(work);
+            byteSmooth(work);
+        }) - copy;
+        double bits = time(() -> {
+            copyInto(base, work);
+            MapGenerator.smoothWoods(work);
+        }) - copy;
+        double pack = time(() -> BitGrid.of(base, Terrain.WOODS));
+        BitGrid woods = BitGrid.of(base, Terrain.WOODS);
+        double unpack = time(() -> woods.retain(work, Terrain.WOODS, Terrain.DIRT));
+        BitGrid result = new BitGrid(size, size);
+        double step = time(() -> woods.step(WORD_RULES[0], result));
+        System.out.printf("%dx%d, 45%% woods%n", size, size);
+        System.out.printf("  byte smoothTrees x2  %9.3f ms%n", bytes);
+        System.out.printf("  bitset total         %9.3f ms%n", bits);
+        System.out.printf("    pack               %9.3f ms%n", pack);
+        System.out.printf("    two sweeps         %9.3f ms%n", bits - pack - unpack);
+        System.out.printf("    unpack             %9.3f ms%n", unpack);
+        System.out.printf("  BitGrid.step         %9.3f ms%n", step);
+    }
+
+    /* The cell at x, y of a byte grid, false outside the grid. */
+    private static boolean at(byte[] cells, int width, int height, int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && cells[x + width * y] != 0;
+    }
+
+    /* Smooth the woods in place in row order, a byte at a time, as the
+     * classic generator did before the woods were packed.
+     */
+    private static void byteSmooth(Terrain terrain) {
+        for (int y = 0; y < terrain.getHeight(); y++) {
+            for (int x = 0; x < terrain.getWidth(); x++) {
+                if (terrain.get(x, y) != Terrain.WOODS)
+                    continue;
+                int bitindex = 0;
+                for (int z = 0; z < 4; z++) {
+                    bitindex <<= 1;
+                    int nx = x + DX[z];
+                    int ny = y + DY[z];
+                    if (terrain.validCoords(nx, ny) && terrain.get(nx, ny) == Terrain.WOODS) {
+                        bitindex |= 1;
+                    }
+                }
+                terrain.set(x, y, TEdTab[bitindex]);
+            }
+        }
+    }
+
+    /* A terrain with the given share of woods, a tenth river and the rest
+     * dirt.
+     */
+    private static Terrain randomTerrain(int width, int height, double woods, Random random) {
+        Terrain terrain = new Terrain(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double q = random.nextDouble();
+                terrain.set(x, y, q < woods ? Terrain.WOODS
+                        : q < woods + 0.1 ? Terrain.RIVER : Terrain.DIRT);
+            }
+        }
+        return terrain;
+    }
+
+    private static Terrain copy(Terrain terrain) {
+        Terrain result = new Terrain(terrain.getWidth(), terrain.getHeight());
+        copyInto(terrain, result);
+        return result;
+    }
+
+    private static void copyInto(Terrain from, Terrain to) {
+        for (int y = 0; y < from.getHeight(); y++) {
+            for (int x = 0; x < from.getWidth(); x++) {
+                to.set(x, y, from.get(x, y));
+            }
+        }
+    }
+
+    private static boolean sameTerrain(Terrain a, Terrain b) {
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.get(x, y) != b.get(x, y))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* Mean milliseconds for the action, after warming up. */
+    private static double time(Runnable action) {
+        long end = System.nanoTime() + BENCH_NANOS / 4;
+        while (System.nanoTime() < end) {
+            action.run();
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        end = start + BENCH_NANOS;
+        long now;
+        do {
+            action.run();
+            runs++;
+            now = System.nanoTime();
+        } while (now < end);
+        return (now - start) / 1e6 / runs;
+    }
+}
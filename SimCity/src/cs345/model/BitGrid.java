@@ -0,0 +1,186 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A two-dimensional array of bits, packed 64 to a word.
+ *
+ * Each row starts on a word boundary and the bits past the end of a row
+ * are always zero, so neighboring cells can be found for a whole word at
+ * once with shifts. The step method applies a NeighborhoodRule to every
+ * cell this way.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class BitGrid {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits; // Row y is bits[y * wordsPerRow ...]
+
+    /**
+     * Create a grid of the given size with every bit clear.
+     * @param width the width
+     * @param height the height
+     */
+    public BitGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Create a grid with the bits set where the terrain has the given code.
+     * @param terrain the terrain
+     * @param code the terrain code
+     * @return the new grid
+     */
+    public static BitGrid of(Terrain terrain, byte code) {
+        BitGrid result = new BitGrid(terrain.getWidth(), terrain.getHeight());
+        byte[] cells = terrain.cells();
+        int width = result.width;
+        for (int y = 0; y < result.height; y++) {
+            int row = y * result.wordsPerRow;
+            int base = y * width;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int end = Math.min(64, width - x0);
+                long word = 0;
+                for (int b = 0; b < end; b++) {
+                    // One when the cell matches, without a branch
+                    word |= (long)((((cells[base + x0 + b] ^ code) & 0xFF) - 1) >>> 31) << b;
+                }
+                result.bits[row + (x0 >>> 6)] = word;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Change the cells of the terrain that have the given code but whose
+     * bit is clear to the replacement code.
+     * @param terrain the terrain, the same size as the grid
+     * @param code the terrain code
+     * @param replacement the code for cells whose bit is clear
+     */
+    public void retain(Terrain terrain, byte code, byte replacement) {
+        byte[] cells = terrain.cells();
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            int base = y * width;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                long word = bits[row + (x0 >>> 6)];
+                if (word == -1L)
+                    continue;
+                int end = Math.min(64, width - x0);
+                for (int b = 0; b < end; b++) {
+                    int i = base + x0 + b;
+                    int cell = cells[i];
+                    // All ones when the cell matches and its bit is clear,
+                    // without a branch
+                    int matches = (((cell ^ code) & 0xFF) - 1) >> 31;
+                    int set = (int)(word << ~b >> 63);
+                    int change = matches & ~set;
+                    cells[i] = (byte)(cell ^ ((cell ^ replacement) & change));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the width of the grid.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Return the height of the grid.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Return the bit at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the bit is set
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Set or clear the bit at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param value true to set the bit
+     */
+    public void set(int x, int y, boolean value) {
+        int i = y * wordsPerRow + (x >>> 6);
+        if (value) {
+            bits[i] |= 1L << x;
+        } else {
+            bits[i] &= ~(1L << x);
+        }
+    }
+
+    /**
+     * Return the number of bits that are set.
+     * @return the number of set bits
+     */
+    public int count() {
+        int n = 0;
+        for (long word : bits) {
+            n += Long.bitCount(word);
+        }
+        return n;
+    }
+
+    /**
+     * Apply a rule to every cell at once, storing the new values in result.
+     * Every new value is computed from the values before the step.
+     * @param rule the rule
+     * @param result the grid for the new values, the same size as this grid
+     *               but not this grid
+     */
+    public void step(NeighborhoodRule rule, BitGrid result) {
+        if (result == this || result.width != width || result.height != height) {
+            throw new IllegalArgumentException("Step needs a separate grid of the same size");
+        }
+        long lastMask = (width & 63) == 0 ? -1L : (1L << width) - 1;
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            long prev = 0;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long center = bits[row + i];
+                long next = i + 1 < wordsPerRow ? bits[row + i + 1] : 0;
+                long left = (center << 1) | (prev >>> 63);
+                long right = (center >>> 1) | (next << 63);
+                long up = y > 0 ? bits[row - wordsPerRow + i] : 0;
+                long down = y < height - 1 ? bits[row + wordsPerRow + i] : 0;
+                long value = rule.apply(center, left, right, up, down);
+                result.bits[row + i] = i + 1 < wordsPerRow ? value : value & lastMask;
+                prev = center;
+            }
+        }
+    }
+
+    /* The packed bits, row y starting at y * wordsPerRow(). */
+    long[] words() {
+        return bits;
+    }
+
+    /* The number of words in each row. */
+    int wordsPerRow() {
+        return wordsPerRow;
+    }
+}
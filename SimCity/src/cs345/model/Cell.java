@@ -74,6 +74,28 @@ public abstract class Cell {
         return false;
     }
 
+    /**
+     * Return true if this cell carries power to its neighbors.
+     *
+     * Default implementation is that the cell does not carry power.
+     *
+     * @return true if the cell conducts power
+     */
+    public boolean isConductor() {
+        return false;
+    }
+
+    /**
+     * Return true if this cell produces power.
+     *
+     * Default implementation is that the cell does not produce power.
+     *
+     * @return true if the cell is a power source
+     */
+    public boolean isPowerSource() {
+        return false;
+    }
+
     /**
      * Return true if this cell can be bulldozed.
      *
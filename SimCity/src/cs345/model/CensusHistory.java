@@ -0,0 +1,218 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The history of the census of the game.
+ *
+ * The population and industry count are recorded at the end of every
+ * period (week). Recent weeks are kept as they are; older history is kept
+ * as the averages over each month, year and decade. Each resolution is a
+ * ring buffer of ints of a fixed size, so the history takes a few KB however
+ * long the game runs:
+ *   WEEK -- the last 104 weeks
+ *   MONTH -- the last 120 months
+ *   YEAR -- the last 100 years
+ *   DECADE -- the last 100 decades
+ * Months, years and decades are counted from the start of the game, so a
+ * month is always 4 weeks and a year 12 months.
+ *
+ * The history is read with samples, which returns the samples covering a
+ * range of periods, each at the finest resolution still held for it.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class CensusHistory {
+
+    /**
+     * The resolutions of the history, with the number of periods in a
+     * sample and the number of samples kept.
+     */
+    public enum Resolution {
+        WEEK(SimulatorTime.WEEK, 104),
+        MONTH(SimulatorTime.MONTH, 120),
+        YEAR(SimulatorTime.YEAR, 100),
+        DECADE(10 * SimulatorTime.YEAR, 100);
+
+        public final int periods;
+        final int capacity;
+
+        Resolution(int periods, int capacity) {
+            this.periods = periods;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * One sample of the history.
+     */
+    public static class Sample {
+        public final Resolution resolution;
+        public final int period; // First period of the sample
+        public final int population;
+        public final int industries;
+
+        Sample(Resolution resolution, int period, int population, int industries) {
+            this.resolution = resolution;
+            this.period = period;
+            this.population = population;
+            this.industries = industries;
+        }
+    }
+
+    /* The samples at one resolution, along with the sums for the sample in
+     * progress at the next resolution.
+     */
+    private static final class Ring {
+        final Resolution resolution;
+        final int[] population;
+        final int[] industries;
+        int count = 0; // Number of samples ever added
+        long populationSum = 0;
+        long industriesSum = 0;
+
+        Ring(Resolution resolution) {
+            this.resolution = resolution;
+            population = new int[resolution.capacity];
+            industries = new int[resolution.capacity];
+        }
+
+        void add(int pop, int ind) {
+            population[count % population.length] = pop;
+            industries[count % industries.length] = ind;
+            count++;
+        }
+
+        /* True if sample n is still held. */
+        boolean holds(int n) {
+            return n >= 0 && n < count && n >= count - population.length;
+        }
+    }
+
+    private final SimulatorTime start;
+    private final Ring[] rings;
+    private int periods = 0;
+
+    /**
+     * Construct an empty history starting at the given time.
+     * @param start the time of the start of the first period
+     */
+    CensusHistory(SimulatorTime start) {
+        this.start = start;
+        rings = new Ring[Resolution.values().length];
+        for (Resolution resolution : Resolution.values()) {
+            rings[resolution.ordinal()] = new Ring(resolution);
+        }
+    }
+
+    /**
+     * Record the census at the end of a period.
+     * @param population the residential population
+     * @param industries the number of industries
+     */
+    void record(int population, int industries) {
+        periods++;
+        int pop = population;
+        int ind = industries;
+        for (int level = 0; level < rings.length; level++) {
+            Ring ring = rings[level];
+            ring.add(pop, ind);
+            if (level + 1 == rings.length)
+                break;
+            ring.populationSum += pop;
+            ring.industriesSum += ind;
+            int per = rings[level + 1].resolution.periods / ring.resolution.periods;
+            if (ring.count % per != 0)
+                break;
+            // Roll the completed sample up to the next resolution
+            pop = (int)(ring.populationSum / per);
+            ind = (int)(ring.industriesSum / per);
+            ring.populationSum = 0;
+            ring.industriesSum = 0;
+        }
+    }
+
+    /**
+     * Return the number of periods recorded.
+     * @return the number of periods
+     */
+    public int getPeriods() {
+        return periods;
+    }
+
+    /**
+     * Return the period containing the given time, counted from the start
+     * of the history. The result may be outside the periods recorded.
+     * @param time the time
+     * @return the period
+     */
+    public int periodOf(SimulatorTime.TimeData time) {
+        return Math.floorDiv(time.diff(start.getTimeData()), SimulatorTime.STEPS_PER_PERIOD);
+    }
+
+    /**
+     * Return the time of the start of the given period.
+     * @param period the period
+     * @return the time
+     */
+    public SimulatorTime timeOf(int period) {
+        return SimulatorTime.getAbsoluteTime(start.getTimeData(),
+                period * SimulatorTime.STEPS_PER_PERIOD);
+    }
+
+    /* The first period held at any resolution. */
+    private int oldestPeriod() {
+        int oldest = periods;
+        for (Ring ring : rings) {
+            if (ring.count > 0) {
+                int first = Math.max(0, ring.count - ring.population.length);
+                oldest = Math.min(oldest, first * ring.resolution.periods);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Return the samples covering the periods from to to (exclusive), in
+     * order. Each sample is the finest one held that contains the periods
+     * it covers, so old periods are covered by months, years or decades and
+     * recent ones by weeks. The first and last samples may extend outside
+     * the range. Periods that are not recorded, or are too old to be held
+     * at any resolution, have no samples.
+     * @param from the first period
+     * @param to the period after the last
+     * @return the samples
+     */
+    public List<Sample> samples(int from, int to) {
+        List<Sample> result = new ArrayList<>();
+        int period = Math.max(from, oldestPeriod());
+        to = Math.min(to, periods);
+        while (period < to) {
+            Sample sample = null;
+            for (Ring ring : rings) {
+                int n = period / ring.resolution.periods;
+                if (ring.holds(n)) {
+                    int i = n % ring.population.length;
+                    sample = new Sample(ring.resolution, n * ring.resolution.periods,
+                            ring.population[i], ring.industries[i]);
+                    break;
+                }
+            }
+            if (sample == null) {
+                // Each resolution holds more than one sample of the next,
+                // so this does not happen
+                break;
+            }
+            result.add(sample);
+            period = sample.period + sample.resolution.periods;
+        }
+        return result;
+    }
+}
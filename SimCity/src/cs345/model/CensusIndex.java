@@ -0,0 +1,93 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+
+/**
+ * Index of the population of the zones by location, for finding the total
+ * population of the zones in a rectangle.
+ *
+ * The population of each zone is counted at the zone's center. For each
+ * type of zone there is a two dimensional Fenwick tree with one entry per
+ * cell, so both a change in the population of a zone and the total for a
+ * rectangle take O(log(width) * log(height)) time. The tree for a type is
+ * created when a zone of that type first has a population.
+ *
+ * The model keeps the index current from the same changes that keep its
+ * census current.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class CensusIndex {
+
+    private final int width;
+    private final int height;
+    private final int[][] trees = new int[CellType.values().length][];
+
+    /**
+     * Construct an empty index for a grid of the given size.
+     * @param width the width of the grid
+     * @param height the height of the grid
+     */
+    CensusIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Add a change in the population of a zone.
+     * @param type the type of the zone
+     * @param center the center of the zone
+     * @param delta the change in population
+     */
+    void add(CellType type, GridLocation center, int delta) {
+        int[] tree = trees[type.ordinal()];
+        if (tree == null) {
+            if (delta == 0)
+                return;
+            tree = new int[width * height];
+            trees[type.ordinal()] = tree;
+        }
+        for (int x = center.x; x < width; x |= x + 1) {
+            for (int y = center.y; y < height; y |= y + 1) {
+                tree[x + width * y] += delta;
+            }
+        }
+    }
+
+    /**
+     * Return the total population of the zones of the given type whose
+     * centers are in the rectangle. The parts of the rectangle outside the
+     * grid are ignored.
+     * @param type the type of zone
+     * @param rect the rectangle
+     * @return the total population
+     */
+    public int population(CellType type, GridRectangle rect) {
+        int[] tree = trees[type.ordinal()];
+        int x0 = Math.max(rect.x, 0);
+        int y0 = Math.max(rect.y, 0);
+        int x1 = Math.min(rect.x + rect.w, width) - 1;
+        int y1 = Math.min(rect.y + rect.h, height) - 1;
+        if (tree == null || x0 > x1 || y0 > y1)
+            return 0;
+        return prefix(tree, x1, y1) - prefix(tree, x0 - 1, y1)
+                - prefix(tree, x1, y0 - 1) + prefix(tree, x0 - 1, y0 - 1);
+    }
+
+    /* Total of the cells x' <= x, y' <= y. */
+    private int prefix(int[] tree, int x, int y) {
+        int sum = 0;
+        for (int i = x; i >= 0; i = (i & (i + 1)) - 1) {
+            for (int j = y; j >= 0; j = (j & (j + 1)) - 1) {
+                sum += tree[i + width * j];
+            }
+        }
+        return sum;
+    }
+}
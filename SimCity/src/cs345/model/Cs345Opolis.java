@@ -8,11 +8,15 @@ package cs345.model;
 
 import cs345.model.cell.CellType;
 import cs345.model.cell.Dirt;
+import cs345.model.cell.Zone;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Properties;
-import java.util.Random;
+import java.util.Set;
 
 /**
  * Model for the CS345Opolis game.
@@ -25,8 +29,13 @@ import java.util.Random;
  * the total residential population and the random number generator used by
  * the game.
  *
+ * The census is kept current as it changes: zones report each change in
+ * their population, including the loss of all of it when bulldozed. If the
+ * property cs345opolis.census.verify is true, the totals are checked
+ * against a count of every zone at the end of each period.
+ *
  * Finally, this class is where global SimulationActions, are located. (See
- * PeriodInitAction and PeriodEndAction.
+ * PeriodEndAction.
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
@@ -36,21 +45,39 @@ public class Cs345Opolis {
    public static final String GRID_WIDTH = "cs345opolis.grid.width";
    public static final String GRID_HEIGHT = "cs345opolis.grid.height";
    public static final String PRNG_SEED = "cs345opolis.randomseed";
+   public static final String VERIFY_CENSUS = "cs345opolis.census.verify";
 
    private Properties props;
    private Simulator sim;
    private Grid grid;
-   private MapGenerator generator;
+   private TerrainGenerator generator;
+   private final MapCache mapCache;
+   private final int mapPoolSize;
+   private MapPool mapPool = null;
+   private RoadRouter roadRouter;
+   private WaterBodies waterBodies;
+   private PowerGrid powerGrid;
+   private SiteIndex siteIndex;
+   private PollutionField pollution;
+   private LandValue landValue;
+   private ServiceCoverage serviceCoverage;
+   private Forest forest;
+   private Floods floods;
+   private final Demand demand = new Demand();
 
    // These really should be private, However, these are accessed from a
    // number of different places. So, these are now public.
    public int curResPop = 0; // Total residential population, start of period
-   public int newResPop = 0; // Total residential population, accumulating
    public int curIndCount = 0; // Total number of industries, start of period
-   public int newIndCount = 0; // Total number of industries, accumalating
+
+   // Current totals of the population of each zone type
+   private final int[] census = new int[CellType.values().length];
+   private CensusIndex censusIndex;
+   private CensusHistory censusHistory;
+   private final boolean verifyCensus;
 
    // Pseudo Random Number Generator for the model
-   private Random prng;
+   private Prng prng;
 
    /**
     * This interface should be implemented by objects that listen for changes
@@ -122,21 +149,52 @@ public class Cs345Opolis {
       this.props = props;
       String prngSeed = props.getProperty(PRNG_SEED);
       if (prngSeed != null) {
-         prng = new Random(Long.parseLong(prngSeed));
+         prng = Prng.newPrng(Prng.typeOf(props), Long.parseLong(prngSeed));
       } 
       else {
-         prng = new Random();
+         prng = Prng.newPrng(Prng.typeOf(props));
       }
+      mapCache = MapCache.fromProperties(props);
+      verifyCensus = Boolean.parseBoolean(props.getProperty(VERIFY_CENSUS, "false"));
+      mapPoolSize = Integer.parseInt(props.getProperty(MapPool.SIZE_PROP, "0"));
    
       newGrid();
+      if (mapPoolSize > 0) {
+         // Start on the maps for the first newgrid
+         generator = TerrainGenerator.newGenerator(props);
+         mapPool = new MapPool(generator, mapCache, grid.getWidth(), grid.getHeight(), mapPoolSize);
+      }
       newSimulator();
+      censusHistory = new CensusHistory(sim.getCurrentTime());
    
       makeSimulatorActions();
+
+      roadRouter = new RoadRouter(this);
+      addListener(roadRouter);
+      waterBodies = new WaterBodies(this);
+      addListener(waterBodies);
+      powerGrid = new PowerGrid(this, props);
+      addListener(powerGrid);
+      siteIndex = new SiteIndex(this);
+      addListener(siteIndex);
+      pollution = new PollutionField(this);
+      addListener(pollution);
+      sim.addAction(sim.getCurrentTime().nextStep(1), pollution);
+      landValue = new LandValue(this);
+      addListener(landValue);
+      sim.addAction(sim.getCurrentTime().nextStep(2), landValue);
+      serviceCoverage = new ServiceCoverage(this, props);
+      addListener(serviceCoverage);
+      forest = new Forest(this, props);
+      addListener(forest);
+      sim.addAction(sim.getCurrentTime().nextStep(3), forest);
+      floods = new Floods(this, props);
+      addListener(floods);
+      sim.addAction(sim.getCurrentTime().nextStep(4), floods);
    }
 
    private void makeSimulatorActions() {
       // Simulator always initializes with stepOffset == 0
-      sim.addAction(sim.getCurrentTime(), new PeriodInitAction());
       sim.addAction(sim.getCurrentTime().nextStep(SimulatorTime.STEPS_PER_PERIOD - 1),
              new PeriodEndAction());
    }
@@ -175,6 +233,7 @@ public class Cs345Opolis {
       int width = Integer.parseInt(props.getProperty(GRID_WIDTH));
       int height = Integer.parseInt(props.getProperty(GRID_HEIGHT));
       grid = Grid.emptyGrid(this, width, height, Dirt::new);
+      censusIndex = new CensusIndex(width, height);
    }
 
    private boolean gridSizeChanged() {
@@ -191,21 +250,145 @@ public class Cs345Opolis {
     * properties have changes or the existing generator returns true when
     * queried as to whether the map parameters have changed.
     *
+    * If the map cache is turned on, a map the generator has produced
+    * before is read from the cache instead of being generated again. If
+    * the map pool is turned on, the map is taken from the pool, which was
+    * generating it in the background. A pool that has not handed out a map
+    * yet counts as a new generator.
+    *
     * @param newGenerator if true, a new generator will be created and used
     * @throws IllegalArgumentException if either the width or height is <= MIN_GRID_SIZE
     */
    void newMapGrid(boolean newGenerator) {
+      bulldozeZones();
       if (gridSizeChanged()) {
          newGrid();
          newGenerator = true;
       }
-      if (newGenerator || generator == null || !generator.sameProperties(props)) {
-         generator = new MapGenerator(props);
+      if ((newGenerator || generator == null || !generator.sameProperties(props))
+            && !freshPool()) {
+         generator = TerrainGenerator.newGenerator(props);
+      }
+      if (mapPoolSize > 0) {
+         if (mapPool == null || mapPool.getGenerator() != generator
+               || !mapPool.fits(grid.getWidth(), grid.getHeight())) {
+            if (mapPool != null) {
+               mapPool.shutdown();
+            }
+            mapPool = new MapPool(generator, mapCache, grid.getWidth(), grid.getHeight(),
+                  mapPoolSize);
+         }
+         grid.setTerrain(mapPool.take());
+      } else if (mapCache != null) {
+         Terrain terrain = new Terrain(grid.getWidth(), grid.getHeight());
+         mapCache.generateTerrain(generator, terrain);
+         grid.setTerrain(terrain);
+      } else {
+         generator.generateMap(this);
       }
-      generator.generateMap(this);
+      pollution.clear();
+      forest.clear();
+      floods.clear();
       fireGridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
    }
 
+   /* Bulldoze every zone of the grid, so none is left running or counted
+    * in the census once the grid is replaced.
+    */
+   private void bulldozeZones() {
+      zones().forEach(Zone::bulldoze);
+   }
+
+   /* The distinct zones of the grid. */
+   private Collection<Zone> zones() {
+      Set<Zone> zones = Collections.newSetFromMap(new IdentityHashMap<>());
+      grid.forEachCell(cell -> {
+         if (cell instanceof Zone) {
+            zones.add((Zone)cell);
+         }
+      });
+      return zones;
+   }
+
+   /* Return true if the map pool has not handed out a map and its maps fit
+    * the current properties. Its generator is then as good as a new one.
+    */
+   private boolean freshPool() {
+      return mapPool != null && mapPool.isFresh() && mapPool.getGenerator() == generator
+            && mapPool.fits(grid.getWidth(), grid.getHeight())
+            && generator.sameProperties(props);
+   }
+
+   /**
+    * Generate new terrain for a region of the grid.
+    *
+    * The terrain cells (dirt, river and woods) of the region are replaced by
+    * terrain from the map generator, made for just the region with the
+    * given seed. Other cells, such as zones and roads, are left alone. The
+    * trees of the new terrain are smoothed against the cells around the
+    * region, which do not change. Only the region is reported as changed.
+    *
+    * @param rect the region, which must be inside the grid
+    * @param seed the seed for the new terrain
+    */
+   void regenerateRegion(GridRectangle rect, long seed) {
+      // A generator of its own, since the map pool's may be in use
+      TerrainGenerator generator = TerrainGenerator.newGenerator(props);
+
+      // The terrain of the region and the cells around it
+      int x0 = Math.max(0, rect.x - 1);
+      int y0 = Math.max(0, rect.y - 1);
+      int x1 = Math.min(grid.getWidth(), rect.x + rect.w + 1);
+      int y1 = Math.min(grid.getHeight(), rect.y + rect.h + 1);
+      Terrain context = new Terrain(x1 - x0, y1 - y0);
+      BitGrid locked = new BitGrid(x1 - x0, y1 - y0);
+      for (int y = y0; y < y1; y++) {
+         for (int x = x0; x < x1; x++) {
+            byte code = Terrain.codeOf(grid.cellAt(x, y));
+            if (code < 0) {
+               locked.set(x - x0, y - y0, true);
+               code = Terrain.DIRT;
+            }
+            context.set(x - x0, y - y0, code);
+         }
+      }
+
+      // New terrain for the cells that are not locked
+      Terrain fresh = new Terrain(rect.w, rect.h);
+      generator.generateRegion(fresh, rect.x, rect.y, seed);
+      for (int y = 0; y < rect.h; y++) {
+         for (int x = 0; x < rect.w; x++) {
+            int cx = rect.x + x - x0;
+            int cy = rect.y + y - y0;
+            if (!locked.get(cx, cy)) {
+               context.set(cx, cy, fresh.get(x, y));
+            }
+         }
+      }
+      generator.smoothRegion(context, new GridRectangle(rect.x - x0, rect.y - y0, rect.w, rect.h));
+
+      // Replace the cells whose terrain changed
+      for (int y = rect.y; y < rect.y + rect.h; y++) {
+         for (int x = rect.x; x < rect.x + rect.w; x++) {
+            if (locked.get(x - x0, y - y0))
+               continue;
+            byte code = context.get(x - x0, y - y0);
+            if (code != Terrain.codeOf(grid.cellAt(x, y))) {
+               grid.setCellAt(x, y, Terrain.newCell(this, code, new GridLocation(x, y)));
+            }
+         }
+      }
+      fireGridChanged(rect);
+   }
+
+   /**
+    * Return a random long from the random number generator of the game.
+    * @return the random long
+    */
+   long prngNextLong() {
+      return prng.nextLong();
+   }
+
    /* Create a new Simulator for the game. */
    private void newSimulator() {
       sim = new Simulator(props);
@@ -219,6 +402,112 @@ public class Cs345Opolis {
       return grid;
    }
 
+   /**
+    * Return the cache of generated maps.
+    * @return the MapCache object, or null if maps are not cached
+    */
+   public MapCache getMapCache() {
+      return mapCache;
+   }
+
+   /**
+    * Return the RoadRouter used to find routes for roads on the grid.
+    * @return the RoadRouter object
+    */
+   public RoadRouter getRoadRouter() {
+      return roadRouter;
+   }
+
+   /**
+    * Return the WaterBodies object labeling the bodies of water on the grid.
+    * @return the WaterBodies object
+    */
+   public WaterBodies getWaterBodies() {
+      return waterBodies;
+   }
+
+   /**
+    * Return the PowerGrid object tracking which cells have power.
+    * @return the PowerGrid object
+    */
+   public PowerGrid getPowerGrid() {
+      return powerGrid;
+   }
+
+   /**
+    * Return the SiteIndex used to find places where zones can be built.
+    * @return the SiteIndex object
+    */
+   public SiteIndex getSiteIndex() {
+      return siteIndex;
+   }
+
+   /**
+    * Return the PollutionField holding the pollution over the grid.
+    * @return the PollutionField object
+    */
+   public PollutionField getPollution() {
+      return pollution;
+   }
+
+   /**
+    * Return the LandValue holding the value of the land over the grid.
+    * @return the LandValue object
+    */
+   public LandValue getLandValue() {
+      return landValue;
+   }
+
+   /**
+    * Return the ServiceCoverage holding the police and fire coverage of the
+    * grid.
+    * @return the ServiceCoverage object
+    */
+   public ServiceCoverage getServiceCoverage() {
+      return serviceCoverage;
+   }
+
+   /**
+    * Return the Forest holding the growth and burning of the woods.
+    * @return the Forest object
+    */
+   public Forest getForest() {
+      return forest;
+   }
+
+   /**
+    * Return the Floods holding the floods of the rivers.
+    * @return the Floods object
+    */
+   public Floods getFloods() {
+      return floods;
+   }
+
+   /**
+    * Return the CensusIndex used to find the population of a region.
+    * @return the CensusIndex object
+    */
+   public CensusIndex getCensusIndex() {
+      return censusIndex;
+   }
+
+   /**
+    * Return the CensusHistory holding the census of past periods.
+    * @return the CensusHistory object
+    */
+   public CensusHistory getCensusHistory() {
+      return censusHistory;
+   }
+
+   /**
+    * Return the Demand for each type of zone, computed at the end of each
+    * period.
+    * @return the Demand object
+    */
+   public Demand getDemand() {
+      return demand;
+   }
+
    /**
     * Step the model a single step.
     */
@@ -237,6 +526,15 @@ public class Cs345Opolis {
       sim.addAction(time, action);
    }
 
+   /**
+    * Add all the given actions to the simulation with a single bulk insert.
+    * @param time the time of the first execution of the actions
+    * @param actions the actions to be executed
+    */
+   public void addActions(SimulatorTime time, Collection<? extends SimulatorAction> actions) {
+      sim.addActions(time, actions);
+   }
+
    /**
     * Remove the given action from the simulation.
     * @param action the action to be executed
@@ -314,13 +612,14 @@ public class Cs345Opolis {
    }
    
    //Method buildLocCheck
-   //Return True if rect does not contain a Road, Indstrial, or Residential cell.
+   //Return True if every cell in rect is Dirt, Woods or River, the cells
+   //a road can be built on.
    boolean buildLocCheck(GridRectangle rect) {
       for (int col = rect.x; col < rect.x + rect.w; col++) {
          for (int row = rect.y; row < rect.y + rect.h; row++) {
-            if (grid.cellAt(col, row).getCellType().toString() =="ROAD" 
-            || grid.cellAt(col, row).getCellType().toString() =="INDUSTRIAL"
-            || grid.cellAt(col, row).getCellType().toString() =="RESIDENTIAL"){
+            CellType cellType = grid.cellAt(col, row).getCellType();
+            if (cellType != CellType.DIRT && cellType != CellType.WOODS
+                  && cellType != CellType.RIVER) {
                return false;
             }
          }
@@ -355,31 +654,71 @@ public class Cs345Opolis {
    /**
     * Bulldoze the given region. If the region is not valid (extends outside)
     * the grid, an IndexOutOfBoundsException will be thrown.
+    *
+    * Bulldozing any cell of a zone bulldozes the entire zone, so the
+    * region reported to the listeners is grown to cover every zone that
+    * was bulldozed.
     * @param rect the GridRectangle to bulldoze
     */
    public void bulldoze(GridRectangle rect) {
+      GridRectangle changed = rect;
       for (int col = rect.x; col < rect.x + rect.w; col++) {
          for (int row = rect.y; row < rect.y + rect.h; row++) {
             Cell cell = grid.cellAt(col, row);
+            if (cell instanceof Zone) {
+               changed = changed.union(((Zone)cell).getRectangle());
+            }
             cell.bulldoze();
          }
       }
-      fireGridChanged(rect);
+      fireGridChanged(changed);
    }
 
    /**
-    * Perform initialization actions at the start of a period.
-    *
-    * This action is run at step 0 of each simulation period. It's purpose
-    * is to do initialization for the beginning of a period.
+    * Add a change in the population of a zone to the census.
+    * @param type the type of the zone
+    * @param center the center of the zone
+    * @param delta the change in population
     */
-   private class PeriodInitAction implements SimulatorAction {
-      @Override public int doAction() {
-         newResPop = 0;
-         newIndCount = 0;
-      
-         // Reschedule to run at beginning of next period
-         return Simulator.STEPS_PER_PERIOD;
+   public void addToCensus(CellType type, GridLocation center, int delta) {
+      census[type.ordinal()] += delta;
+      censusIndex.add(type, center, delta);
+      if (type == CellType.INDUSTRIAL) {
+         pollution.emit(center, delta);
+      }
+   }
+
+   /**
+    * Return the current total population of zones of the given type. The
+    * fields curResPop and curIndCount hold the totals as of the end of the
+    * last period.
+    * @param type the type of zone
+    * @return the total population
+    */
+   public int getCensus(CellType type) {
+      return census[type.ordinal()];
+   }
+
+   /* Check the census and the census index against a count of the
+    * population of every zone.
+    */
+   private void checkCensus() {
+      GridRectangle all = new GridRectangle(0, 0, grid.getWidth(), grid.getHeight());
+      int[] count = new int[census.length];
+      for (Zone zone : zones()) {
+         count[zone.getCellType().ordinal()] += zone.getPopulation();
+      }
+      for (CellType type : CellType.values()) {
+         if (count[type.ordinal()] != census[type.ordinal()]) {
+            throw new IllegalStateException(String.format(
+                  "Census of %s is %d, count of zones is %d", type,
+                  census[type.ordinal()], count[type.ordinal()]));
+         }
+         if (censusIndex.population(type, all) != census[type.ordinal()]) {
+            throw new IllegalStateException(String.format(
+                  "Census of %s is %d, census index total is %d", type,
+                  census[type.ordinal()], censusIndex.population(type, all)));
+         }
       }
    }
 
@@ -387,12 +726,18 @@ public class Cs345Opolis {
     * Perform actions at the end of a period.
     *
     * This action is run at the last step of each simulation period. It's
-    * purpose is to do cleanup/finalization for the period.
+    * purpose is to do cleanup/finalization for the period, including
+    * computing the demand for the next period from the census.
     */
    private class PeriodEndAction implements SimulatorAction {
       @Override public int doAction() {
-         curResPop = newResPop;
-         curIndCount = newIndCount;
+         if (verifyCensus) {
+            checkCensus();
+         }
+         curResPop = getCensus(CellType.RESIDENTIAL);
+         curIndCount = getCensus(CellType.INDUSTRIAL);
+         censusHistory.record(curResPop, curIndCount);
+         demand.update(Cs345Opolis.this);
          fireCensusChanged();
       
          // Reschedule to run at end of next period
@@ -0,0 +1,91 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.ZoneType;
+
+/**
+ * The demand for each type of zone, in the manner of the residential,
+ * commercial and industrial valves of SimCity.
+ *
+ * The demand is computed once at the end of each period from the census
+ * for the period. Zones read the force for their type when they update
+ * instead of working the demand out for themselves. A force is 1 if zones
+ * of the type should grow, -1 if they should shrink and 0 otherwise.
+ *
+ * Residential demand comes from the jobs provided by industry and commerce,
+ * 8 people for each industry and 4 for each shop, as given by the jobs of
+ * each ZoneType. Industry grows unless there are well more jobs than
+ * people and shrinks when there are too many jobs for the people. Commerce
+ * grows while there are more than SHOPPERS people for each shop and shrinks
+ * when there are fewer. Each period a random margin is drawn for
+ * residential and industrial demand, so the demand wavers near a balance;
+ * commerce has a fixed margin of half a shop's shoppers, so no more random
+ * numbers are drawn than before there was commerce.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class Demand {
+
+    /** Number of people served by each shop. */
+    public static final int SHOPPERS = 12;
+
+    private static final ZoneType[] TYPES = ZoneType.values();
+
+    private final int[] force = new int[CellType.values().length];
+
+    /**
+     * Construct the demand for a city with no people or industry.
+     */
+    Demand() {
+        // The smallest margins give the same forces as any others while
+        // all counts are zero, so no random numbers are needed yet
+        update(new int[TYPES.length], 2, 2);
+    }
+
+    /**
+     * Return the force on zones of the given type.
+     * @param type the type of zone
+     * @return 1 to grow, -1 to shrink, 0 for neither
+     */
+    public int force(CellType type) {
+        return force[type.ordinal()];
+    }
+
+    /**
+     * Compute the demand for the next period.
+     * @param model the model, supplying the census and random numbers
+     */
+    void update(Cs345Opolis model) {
+        int resMargin = model.prngNextInt(6) + 2;
+        int indMargin = model.prngNextInt(4) + 2;
+        int[] census = new int[TYPES.length];
+        for (ZoneType type : TYPES) {
+            census[type.ordinal()] = model.getCensus(type.cellType);
+        }
+        update(census, resMargin, indMargin);
+    }
+
+    /* Compute the demand from the census of each zone type and the margins. */
+    private void update(int[] census, int resMargin, int indMargin) {
+        int jobs = 0;
+        for (ZoneType type : TYPES) {
+            jobs += type.jobs * census[type.ordinal()];
+        }
+        int resPop = census[ZoneType.RESIDENTIAL.ordinal()];
+        int resDifference = jobs - resPop;
+        force[CellType.RESIDENTIAL.ordinal()] = resDifference > resMargin ? 1
+                : resDifference < -resMargin ? -1 : 0;
+        int indDifference = resPop - jobs;
+        force[CellType.INDUSTRIAL.ordinal()] = indDifference > -indMargin ? 1
+                : indDifference < -2 * indMargin ? -1 : 0;
+        int comDifference = resPop - SHOPPERS * census[ZoneType.COMMERCIAL.ordinal()];
+        force[CellType.COMMERCIAL.ordinal()] = comDifference > SHOPPERS / 2 ? 1
+                : comDifference < -SHOPPERS / 2 ? -1 : 0;
+    }
+}
@@ -0,0 +1,288 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.Zone;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The floods of the rivers.
+ *
+ * About once in a given number of months the rivers rise to a water level
+ * from 1 to MAX_LEVEL and then fall by one each month. The number of months
+ * is the property cs345opolis.floods.months, FLOOD_MONTHS if it is unset;
+ * 0 turns the floods off, and no random numbers are drawn for them. The
+ * land flooded at a water level is every cell that can be reached from a
+ * river without crossing land higher than the level, using the heightmap
+ * of MapGenerator.heights. Zones are damaged by DAMAGE percent when the
+ * water first reaches them. A grid change is fired for the land that floods
+ * or dries as the water rises or falls.
+ *
+ * The level at which each cell floods is found once for each map with a
+ * priority flood from the rivers: cells are taken in order of their level
+ * from a queue with a bucket for each height, and each neighbor not yet
+ * reached floods at the higher of the level of the cell and its own height.
+ * The cells are then sorted by that level into buckets, so the cells
+ * flooded as the water rises from one level to the next, or left dry as it
+ * falls, are a range of the sorted cells. A flood costs time in proportion
+ * to the area it covers, not to the size of the map. The levels are found
+ * again when the rivers change.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class Floods implements Cs345Opolis.ModelListener, SimulatorAction {
+
+    public static final String MONTHS_PROP = "cs345opolis.floods.months";
+
+    /** Default mean number of months between floods. */
+    public static final int FLOOD_MONTHS = 120;
+
+    /** Highest water level of a flood. */
+    public static final int MAX_LEVEL = 4;
+
+    /** Percentage of the population a zone loses to a flood. */
+    public static final int DAMAGE = 50;
+
+    private static final int DRY = MapGenerator.MAX_HEIGHT + 1; // Never floods
+
+    private final Cs345Opolis model;
+    private final int months; // Mean months between floods, 0 for none
+
+    private int width = 0;
+    private int height = 0;
+    private boolean stale = true; // The flood levels need finding
+    private byte[] floodLevel = new byte[0]; // Level at which each cell floods
+    private int[] order = new int[0]; // Cells sorted by floodLevel
+    private int[] start = new int[DRY + 2]; // First of each level in order
+    private int level = 0; // The water level now, 0 for no flood
+
+    /**
+     * Construct the floods for the given model. The object must be added as
+     * a listener on the model and scheduled monthly to be kept current.
+     * @param model the model
+     * @param props the properties for the game
+     */
+    Floods(Cs345Opolis model, Properties props) {
+        this.model = model;
+        this.months = Integer.parseInt(
+                props.getProperty(MONTHS_PROP, Integer.toString(FLOOD_MONTHS)));
+    }
+
+    /**
+     * Return the water level of the flood now.
+     * @return the level, 0 when there is no flood
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Return true if the cell at the given location is flooded. Rivers are
+     * not flooded.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the cell is under a flood
+     */
+    public boolean isFlooded(int x, int y) {
+        if (level == 0)
+            return false;
+        checkLevels();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+        int at = floodLevel[x + width * y];
+        return at > 0 && at <= level;
+    }
+
+    /**
+     * Return the number of cells flooded at a water level.
+     * @param waterLevel the water level
+     * @return the number of cells, not counting rivers
+     */
+    public int area(int waterLevel) {
+        checkLevels();
+        return start[Math.min(DRY, waterLevel + 1)] - start[1];
+    }
+
+    /**
+     * Start a flood, or raise the water of a flood. A level no higher than
+     * the water now does nothing.
+     * @param waterLevel the water level, from 1 to MAX_LEVEL
+     */
+    public void flood(int waterLevel) {
+        checkLevels();
+        if (waterLevel <= level)
+            return;
+
+        // Damage each zone newly reached once
+        Grid grid = model.getGrid();
+        Set<Zone> damaged = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int k = start[level + 1]; k < start[waterLevel + 1]; k++) {
+            Cell cell = grid.cellAt(order[k] % width, order[k] / width);
+            if (cell instanceof Zone && damaged.add((Zone)cell)) {
+                ((Zone)cell).damage(DAMAGE);
+            }
+        }
+        int from = start[level + 1];
+        level = waterLevel;
+        fireChanged(from, start[waterLevel + 1]);
+    }
+
+    /**
+     * Let the water of a flood fall by one level.
+     */
+    public void recede() {
+        if (level > 0) {
+            checkLevels();
+            level--;
+            fireChanged(start[level + 1], start[level + 2]);
+        }
+    }
+
+    /* Fire a grid change for the bounds of the cells order[from..to). */
+    private void fireChanged(int from, int to) {
+        if (from >= to)
+            return;
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int k = from; k < to; k++) {
+            int x = order[k] % width;
+            int y = order[k] / width;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        model.fireGridChanged(new GridRectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+    }
+
+    /**
+     * End any flood, as for a new map.
+     */
+    void clear() {
+        level = 0;
+    }
+
+    /**
+     * Let a flood recede, or start one now and then if floods are on.
+     * @return the steps to the next update
+     */
+    @Override public int doAction() {
+        if (level > 0) {
+            recede();
+        } else if (months > 0 && model.prngNextInt(months) == 0) {
+            flood(1 + model.prngNextInt(MAX_LEVEL));
+        }
+        return SimulatorTime.MONTH * Simulator.STEPS_PER_PERIOD;
+    }
+
+    /**
+     * Note a change in the rivers, so the flood levels are found again.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        if (stale)
+            return;
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            stale = true;
+            return;
+        }
+        for (int y = rect.y; y < rect.y + rect.h && !stale; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                boolean river = grid.cellAt(x, y).getCellType() == CellType.RIVER;
+                if (river != (floodLevel[x + width * y] == 0)) {
+                    stale = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /* Find the flood levels if the rivers have changed. */
+    private void checkLevels() {
+        Grid grid = model.getGrid();
+        if (stale || grid.getWidth() != width || grid.getHeight() != height) {
+            findLevels(grid);
+            stale = false;
+        }
+    }
+
+    /* Reach cell n from a cell that floods at current. */
+    private void reach(int n, int current, byte[] heights, int[] bucket, int[] next) {
+        if (floodLevel[n] == DRY) {
+            int at = Math.max(current, heights[n]);
+            floodLevel[n] = (byte)at;
+            next[n] = bucket[at];
+            bucket[at] = n;
+        }
+    }
+
+    /* Find the level at which each cell floods and sort the cells by it. */
+    private void findLevels(Grid grid) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        int size = width * height;
+        Terrain terrain = new Terrain(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte code = Terrain.codeOf(grid.cellAt(x, y));
+                terrain.set(x, y, code < 0 ? Terrain.DIRT : code);
+            }
+        }
+        byte[] heights = MapGenerator.heights(terrain);
+
+        // Priority flood from the rivers. Each bucket is a stack linked
+        // through next; a cell is pushed only to a bucket at or above the
+        // one being emptied. Heights are at most MAX_HEIGHT, below DRY.
+        floodLevel = new byte[size];
+        Arrays.fill(floodLevel, (byte)DRY);
+        int[] bucket = new int[DRY + 1];
+        int[] next = new int[size];
+        Arrays.fill(bucket, -1);
+        for (int i = 0; i < size; i++) {
+            if (terrain.cells()[i] == Terrain.RIVER) {
+                floodLevel[i] = 0;
+                next[i] = bucket[0];
+                bucket[0] = i;
+            }
+        }
+        for (int current = 0; current < DRY; current++) {
+            while (bucket[current] >= 0) {
+                int i = bucket[current];
+                bucket[current] = next[i];
+                int x = i % width;
+                if (x > 0)
+                    reach(i - 1, current, heights, bucket, next);
+                if (x < width - 1)
+                    reach(i + 1, current, heights, bucket, next);
+                if (i >= width)
+                    reach(i - width, current, heights, bucket, next);
+                if (i + width < size)
+                    reach(i + width, current, heights, bucket, next);
+            }
+        }
+
+        // Sort the cells by level
+        Arrays.fill(start, 0);
+        for (int i = 0; i < size; i++) {
+            start[floodLevel[i] + 1]++;
+        }
+        for (int l = 1; l < start.length; l++) {
+            start[l] += start[l - 1];
+        }
+        int[] fill = Arrays.copyOf(start, start.length);
+        order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[fill[floodLevel[i]]++] = i;
+        }
+    }
+}
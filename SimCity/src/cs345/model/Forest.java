@@ -0,0 +1,402 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.Woods;
+import cs345.model.cell.Zone;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+/**
+ * The growth and burning of the woods.
+ *
+ * Once a week every cell is updated from its eight neighbors, as a cellular
+ * automaton:
+ *   Dirt next to woods becomes woods with a chance of GROW for each
+ *     neighboring woods cell.
+ *   Woods next to a fire catch fire with a chance of WOODS_SPREAD for each
+ *     burning neighbor.
+ *   Zones next to a fire catch fire with a chance of ZONE_SPREAD for each
+ *     burning neighbor, less the fire coverage of the cell. A zone that
+ *     catches fire is destroyed.
+ *   A fire burns for a week and leaves dirt.
+ * Fires are started by lightning, which strikes a random cell about once in
+ * a given number of weeks, or by ignite. The number of weeks is the
+ * property cs345opolis.forest.lightning, LIGHTNING if it is unset; 0 turns
+ * lightning off.
+ *
+ * The state of each cell is kept in two byte arrays, one for the week
+ * before and one for the week being worked out, with a border of cells
+ * that never change so neighbors need no bounds checks. The grid is split
+ * into square tiles and only the active tiles are updated: those with a fire
+ * or next to one, those with dirt next to woods, and those that changed
+ * since the last update. The work each week is in proportion to the edges
+ * of the woods and the fires, not to the size of the grid. If the property
+ * cs345opolis.forest.parallel is true, the active tiles are worked out in
+ * parallel. The chances are taken from a hash of the cell and a seed drawn
+ * once a week, so the result does not depend on the order of the tiles. No
+ * seed is drawn in a week with no active tiles.
+ * The changes are then made to the grid one tile at a time.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class Forest implements Cs345Opolis.ModelListener, SimulatorAction {
+
+    public static final String PARALLEL_PROP = "cs345opolis.forest.parallel";
+    public static final String LIGHTNING_PROP = "cs345opolis.forest.lightning";
+
+    /* Chances, as fractions of CHANCE, for each neighbor. */
+    private static final int CHANCE = 1 << 16;
+    private static final double GROW = 1.0 / 4096;
+    private static final double WOODS_SPREAD = 0.35;
+    private static final double ZONE_SPREAD = 0.1;
+
+    /** Default mean number of weeks between lightning strikes. */
+    public static final int LIGHTNING = 52;
+
+    private static final byte OTHER = 0;
+    private static final byte DIRT = 1;
+    private static final byte WOODS = 2;
+    private static final byte ZONE = 3;
+    private static final byte BURNING = 4;
+
+    /* What is going on in a tile, from the last update. */
+    private static final byte QUIET = 0;
+    private static final byte GROWING = 1;
+    private static final byte ON_FIRE = 2;
+
+    private static final int TILE_SHIFT = 4; // Tiles of 16 x 16 cells
+    private static final int TILE = 1 << TILE_SHIFT;
+
+    /* For each state, 1 for woods and 16 for burning, so that the sum over
+     * the neighbors holds both counts.
+     */
+    private static final int[] COUNT = { 0, 0, 1, 0, 16 };
+
+    /* The chance of catching fire for each number of burning neighbors. */
+    private static final int[] WOODS_IGNITE = ignition(WOODS_SPREAD);
+    private static final int[] ZONE_IGNITE = ignition(ZONE_SPREAD);
+
+    private final Cs345Opolis model;
+    private final boolean parallel;
+    private final int lightning; // Mean weeks between strikes, 0 for none
+
+    private int width = 0;
+    private int height = 0;
+    private int stride = 2; // Row length with the border
+    private byte[] state = new byte[0];
+    private byte[] next = new byte[0];
+    private int tilesWide = 0;
+    private byte[] activity = new byte[0]; // Per tile
+    private boolean[] pending = new boolean[0]; // Per tile, true if listed
+    private int[] active = new int[0];
+    private int activeCount = 0;
+
+    /**
+     * Construct the forest for the given model. The object must be added
+     * as a listener on the model and scheduled weekly to be kept current.
+     * @param model the model
+     * @param props the properties for the game
+     */
+    Forest(Cs345Opolis model, Properties props) {
+        this.model = model;
+        this.parallel = Boolean.parseBoolean(props.getProperty(PARALLEL_PROP, "false"));
+        this.lightning = Integer.parseInt(
+                props.getProperty(LIGHTNING_PROP, Integer.toString(LIGHTNING)));
+    }
+
+    /* The chance of catching fire with 0 to 8 burning neighbors. */
+    private static int[] ignition(double spread) {
+        int[] result = new int[9];
+        for (int n = 0; n <= 8; n++) {
+            result[n] = (int)((1 - Math.pow(1 - spread, n)) * CHANCE);
+        }
+        return result;
+    }
+
+    /**
+     * Return true if the cell at the given location is burning.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if it is burning
+     */
+    public boolean isBurning(int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+        return state[index(x, y)] == BURNING;
+    }
+
+    /**
+     * Set the woods at the given location on fire.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if there were woods to burn
+     */
+    public boolean ignite(int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height || state[index(x, y)] != WOODS)
+            return false;
+        state[index(x, y)] = BURNING;
+        activateAround(x, y, 1);
+        return true;
+    }
+
+    /**
+     * Put out every fire, as for a new map.
+     */
+    void clear() {
+        Arrays.fill(state, OTHER);
+        Arrays.fill(next, OTHER);
+    }
+
+    /**
+     * Update the woods for a week.
+     * @return the steps to the next update
+     */
+    @Override public int doAction() {
+        step();
+        return SimulatorTime.WEEK * Simulator.STEPS_PER_PERIOD;
+    }
+
+    /**
+     * Update every active tile once.
+     */
+    public void step() {
+        checkSize();
+        if (lightning > 0 && model.prngNextInt(lightning) == 0) {
+            ignite(model.prngNextInt(width), model.prngNextInt(height));
+        }
+        if (activeCount == 0)
+            return;
+        long seed = model.prngNextInt(Integer.MAX_VALUE);
+
+        // Take the tiles listed for this week, so that changes made below
+        // list them again for the next
+        int[] tiles = Arrays.copyOf(active, activeCount);
+        activeCount = 0;
+        for (int tile : tiles) {
+            pending[tile] = false;
+        }
+
+        IntStream work = IntStream.of(tiles);
+        if (parallel) {
+            work = work.parallel();
+        }
+        work.forEach(tile -> update(tile, seed));
+
+        for (int tile : tiles) {
+            apply(tile);
+        }
+        for (int tile : tiles) {
+            if (activity[tile] == ON_FIRE) {
+                int tx = tile % tilesWide;
+                int ty = tile / tilesWide;
+                activateTiles(tx - 1, ty - 1, tx + 1, ty + 1);
+            } else if (activity[tile] == GROWING) {
+                activate(tile);
+            }
+        }
+    }
+
+    /* Work out the next state of the cells of a tile, and what is going on
+     * in it.
+     */
+    private void update(int tile, long seed) {
+        int x0 = (tile % tilesWide) << TILE_SHIFT;
+        int y0 = (tile / tilesWide) << TILE_SHIFT;
+        int x1 = Math.min(width, x0 + TILE);
+        int y1 = Math.min(height, y0 + TILE);
+        ServiceCoverage coverage = model.getServiceCoverage();
+        byte what = QUIET;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0, p = index(x0, y); x < x1; x++, p++) {
+                byte cell = state[p];
+                if (cell == OTHER) {
+                    next[p] = OTHER;
+                    continue;
+                }
+                int up = p - stride;
+                int down = p + stride;
+                int counts = COUNT[state[up - 1]] + COUNT[state[up]] + COUNT[state[up + 1]]
+                        + COUNT[state[p - 1]] + COUNT[state[p + 1]]
+                        + COUNT[state[down - 1]] + COUNT[state[down]] + COUNT[state[down + 1]];
+                int burning = counts >>> 4;
+                int woods = counts & 0xF;
+                byte result = cell;
+                switch (cell) {
+                    case BURNING:
+                        result = DIRT;
+                        break;
+                    case WOODS:
+                        if (burning > 0 && chance(seed, p) < WOODS_IGNITE[burning])
+                            result = BURNING;
+                        break;
+                    case ZONE:
+                        if (burning > 0) {
+                            int exposed = 100 - coverage.level(ServiceCoverage.Service.FIRE, x, y);
+                            if (chance(seed, p) < ZONE_IGNITE[burning] / 100 * exposed)
+                                result = BURNING;
+                        }
+                        break;
+                    case DIRT:
+                        if (woods > 0 && chance(seed, p) < (int)(GROW * CHANCE) * woods)
+                            result = WOODS;
+                        break;
+                }
+                next[p] = result;
+                if (result == BURNING) {
+                    what = ON_FIRE;
+                } else if (result == DIRT && woods > 0 && what == QUIET) {
+                    what = GROWING;
+                }
+            }
+        }
+        activity[tile] = what;
+    }
+
+    /* A chance from 0 to CHANCE - 1 for the cell at index p this week. */
+    private static int chance(long seed, int p) {
+        return SplitMixRandom.mix32(seed * CHANCE + p) >>> 16;
+    }
+
+    /* Make the changes worked out for a tile to the grid. */
+    private void apply(int tile) {
+        int x0 = (tile % tilesWide) << TILE_SHIFT;
+        int y0 = (tile / tilesWide) << TILE_SHIFT;
+        int x1 = Math.min(width, x0 + TILE);
+        int y1 = Math.min(height, y0 + TILE);
+        Grid grid = model.getGrid();
+        GridRectangle changed = null;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0, p = index(x0, y); x < x1; x++, p++) {
+                byte before = state[p];
+                byte after = next[p];
+                if (before == after)
+                    continue;
+                state[p] = after;
+                Cell cell = grid.cellAt(x, y);
+                GridRectangle rect = new GridRectangle(x, y, 1, 1);
+                if (after == BURNING && before == ZONE && cell instanceof Zone) {
+                    rect = ((Zone)cell).getRectangle();
+                    cell.bulldoze();
+                } else if (after == DIRT && cell.getCellType() == CellType.WOODS) {
+                    cell.bulldoze();
+                } else if (after == WOODS) {
+                    grid.setCellAt(x, y, new Woods(model, new GridLocation(x, y)));
+                } else {
+                    continue;
+                }
+                changed = changed == null ? rect : changed.union(rect);
+            }
+        }
+        if (changed != null) {
+            model.fireGridChanged(changed);
+        }
+    }
+
+    /* The index of a cell in the state arrays. */
+    private int index(int x, int y) {
+        return (x + 1) + stride * (y + 1);
+    }
+
+    /* List a tile for the next update. */
+    private void activate(int tile) {
+        if (!pending[tile]) {
+            pending[tile] = true;
+            active[activeCount++] = tile;
+        }
+    }
+
+    /* List the tiles from tx0, ty0 to tx1, ty1 (inclusive), clipped to the
+     * grid.
+     */
+    private void activateTiles(int tx0, int ty0, int tx1, int ty1) {
+        int tilesHigh = active.length / tilesWide;
+        for (int ty = Math.max(0, ty0); ty <= Math.min(tilesHigh - 1, ty1); ty++) {
+            for (int tx = Math.max(0, tx0); tx <= Math.min(tilesWide - 1, tx1); tx++) {
+                activate(tx + tilesWide * ty);
+            }
+        }
+    }
+
+    /* List the tiles within margin cells of x, y. */
+    private void activateAround(int x, int y, int margin) {
+        activateTiles((x - margin) >> TILE_SHIFT, (y - margin) >> TILE_SHIFT,
+                (x + margin) >> TILE_SHIFT, (y + margin) >> TILE_SHIFT);
+    }
+
+    /**
+     * Update the state of the changed cells and list them for the next
+     * update. A cell that is burning keeps burning while it is woods or
+     * dirt.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x, p = index(rect.x, y); x < rect.x + rect.w; x++, p++) {
+                byte kind = kindOf(grid.cellAt(x, y).getCellType());
+                if (state[p] != BURNING || (kind != WOODS && kind != DIRT)) {
+                    state[p] = kind;
+                }
+                next[p] = state[p];
+            }
+        }
+        activateTiles((rect.x - 1) >> TILE_SHIFT, (rect.y - 1) >> TILE_SHIFT,
+                (rect.x + rect.w) >> TILE_SHIFT, (rect.y + rect.h) >> TILE_SHIFT);
+    }
+
+    /* The state of a type of cell, when it is not burning. */
+    private static byte kindOf(CellType type) {
+        switch (type) {
+            case DIRT:
+                return DIRT;
+            case WOODS:
+                return WOODS;
+            case RESIDENTIAL:
+            case COMMERCIAL:
+            case INDUSTRIAL:
+            case POWERPLANT:
+            case POLICE:
+            case FIRE:
+                return ZONE;
+            default:
+                return OTHER;
+        }
+    }
+
+    /* Make sure the arrays match the grid. */
+    private void checkSize() {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+    }
+
+    /* Allocate the storage for a new grid size. */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        stride = width + 2;
+        state = new byte[stride * (height + 2)];
+        next = new byte[stride * (height + 2)];
+        tilesWide = (width + TILE - 1) >> TILE_SHIFT;
+        int tiles = tilesWide * ((height + TILE - 1) >> TILE_SHIFT);
+        activity = new byte[tiles];
+        pending = new boolean[tiles];
+        active = new int[tiles];
+        activeCount = 0;
+    }
+}
@@ -7,6 +7,7 @@
 package cs345.model;
 
 import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * A two-dimensional array of Cells.
@@ -21,6 +22,12 @@ import java.util.Arrays;
  * cellAt and setCellAt, used to manipulate the Cells, both take x and y
  * coordinates.
  *
+ * A grid can also be set from a Terrain. The terrain codes are copied into
+ * the grid and the Cell for a location is created from its terrain code the
+ * first time the location is used. Setting the terrain is quick, but in a
+ * game every cell is created once, soon after: the model's listeners read
+ * every location of a new map when they are first told of it.
+ *
  * Utility routines are provided for standard operations on the grid.
  *
  * Two factory functions are provided for constructing a grid:
@@ -42,7 +49,8 @@ public class Grid {
 
     private int width; // Width of the grid
     private int height; // Height of the grid
-    private Cell[] grid; // The grid
+    private Cell[] grid; // The grid, null where a cell is not yet created
+    private byte[] terrain = null; // Terrain codes for cells not yet created
 
     /**
      * Return width of grid
@@ -100,7 +108,43 @@ public class Grid {
         if (!validCoords(x, y))
             throw new IndexOutOfBoundsException(
                     String.format("(%d, %d) is not a valid grid coordinate", x, y));
-        return grid[x + width * y];
+        int i = x + width * y;
+        Cell cell = grid[i];
+        if (cell == null) {
+            cell = Terrain.newCell(model, terrain[i], new GridLocation(x, y));
+            grid[i] = cell;
+        }
+        return cell;
+    }
+
+    /**
+     * Set every cell of the grid from the given terrain. The terrain must
+     * have the same size as the grid. The cells are created when they are
+     * first used.
+     * @param source the terrain
+     */
+    void setTerrain(Terrain source) {
+        if (source.getWidth() != width || source.getHeight() != height)
+            throw new IllegalArgumentException("Terrain and grid sizes differ");
+        if (terrain == null) {
+            terrain = new byte[width * height];
+        }
+        System.arraycopy(source.cells(), 0, terrain, 0, terrain.length);
+        Arrays.fill(grid, null);
+    }
+
+    /**
+     * Call action for each cell that has been created. Locations that still
+     * hold only a terrain code are skipped. A cell that covers several
+     * locations, such as a zone, is passed once for each location.
+     * @param action the action for each cell
+     */
+    void forEachCell(Consumer<Cell> action) {
+        for (Cell cell : grid) {
+            if (cell != null) {
+                action.accept(cell);
+            }
+        }
     }
 
     /**
@@ -76,6 +76,20 @@ public class GridRectangle {
         }
     }
 
+    /**
+     * Return the smallest rectangle containing both this rectangle and
+     * the other rectangle.
+     * @param other the other rectangle
+     * @return the bounding rectangle of the two rectangles
+     */
+    public GridRectangle union(GridRectangle other) {
+        int left = Math.min(x, other.x);
+        int top = Math.min(y, other.y);
+        int right = Math.max(x + w, other.x + other.w);
+        int bottom = Math.max(y + h, other.y + other.h);
+        return new GridRectangle(left, top, right - left, bottom - top);
+    }
+
     /**
      * Return a string for this grid rectangle.
      * @return the string
@@ -0,0 +1,336 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+
+import java.util.Arrays;
+
+/**
+ * The value of the land over the grid.
+ *
+ * The value of a cell is BASE, plus up to WATER_BONUS for being near a
+ * river, plus up to WOODS_BONUS for the share of woods in the square of
+ * cells within WOODS_RADIUS of it, less POLLUTION_PENALTY for each unit of
+ * pollution. The value is never below zero.
+ *
+ * The distance to the nearest river cell is an exact Euclidean distance
+ * transform, done as two linear passes (Felzenszwalb and Huttenlocher), one
+ * over the columns and one over the rows, and is capped at WATER_DISTANCE.
+ * The count of woods is a box sum done as running sums along the rows and
+ * then the columns. Both are kept in arrays, along with the value they give
+ * without pollution. When the grid changes, they are recomputed only around
+ * the cells whose river or woods status changed: distances within
+ * WATER_DISTANCE of the change, from the rivers within twice that, and
+ * counts within WOODS_RADIUS. Pollution changes everywhere each month, so
+ * the values are recomputed from the stored terms and the pollution then.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class LandValue implements Cs345Opolis.ModelListener, SimulatorAction {
+
+    public static final float BASE = 50;
+    public static final float WATER_BONUS = 30;
+    public static final float WOODS_BONUS = 20;
+    public static final float POLLUTION_PENALTY = 2;
+
+    /** Value below which residential zones grow only when there is demand. */
+    public static final float AVERAGE = 45;
+
+    /** Distance beyond which water adds no value. */
+    public static final int WATER_DISTANCE = 16;
+
+    /** Radius of the square of cells counted for woods. */
+    public static final int WOODS_RADIUS = 4;
+
+    private static final byte OTHER = 0;
+    private static final byte WATER = 1;
+    private static final byte WOODS = 2;
+
+    private static final double FAR = 1e12; // Squared distance with no water
+
+    private final Cs345Opolis model;
+
+    private int width = 0;
+    private int height = 0;
+    private byte[] kind = new byte[0];
+    private float[] waterDistance = new float[0];
+    private short[] woodsCount = new short[0];
+    private float[] base = new float[0]; // Value without pollution
+    private float[] value = new float[0];
+
+    /**
+     * Construct the land value for the given model. The object must be
+     * added as a listener on the model and scheduled monthly, after the
+     * pollution, to be kept current.
+     * @param model the model
+     */
+    LandValue(Cs345Opolis model) {
+        this.model = model;
+    }
+
+    /**
+     * Return the land value at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the value, 0 outside the grid
+     */
+    public float at(int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+        return value[x + width * y];
+    }
+
+    /**
+     * Update the values for the month's pollution.
+     * @return the steps to the next update
+     */
+    @Override public int doAction() {
+        checkSize();
+        applyPollution(new GridRectangle(0, 0, width, height));
+        return SimulatorTime.MONTH * Simulator.STEPS_PER_PERIOD;
+    }
+
+    /**
+     * Recompute the value of the whole grid from scratch.
+     */
+    public void recomputeAll() {
+        checkSize();
+        recompute(new GridRectangle(0, 0, width, height));
+    }
+
+    /**
+     * Recompute the value of the cells affected by a change in the river or
+     * woods status of the cells in rect.
+     * @param rect the changed cells
+     */
+    public void recompute(GridRectangle rect) {
+        checkSize();
+        GridRectangle distances = grow(rect, WATER_DISTANCE);
+        waterDistances(distances, grow(rect, 2 * WATER_DISTANCE));
+        GridRectangle counts = grow(rect, WOODS_RADIUS);
+        woodsCounts(counts, grow(rect, 2 * WOODS_RADIUS));
+        GridRectangle changed = distances.union(counts);
+        for (int y = changed.y; y < changed.y + changed.h; y++) {
+            for (int x = changed.x; x < changed.x + changed.w; x++) {
+                int i = x + width * y;
+                float near = Math.max(0, 1 - waterDistance[i] / WATER_DISTANCE);
+                base[i] = BASE + WATER_BONUS * near + WOODS_BONUS * woodsCount[i] / woodsArea(x, y);
+            }
+        }
+        applyPollution(changed);
+    }
+
+    /* The rectangle grown by margin on each side, clipped to the grid. */
+    private GridRectangle grow(GridRectangle rect, int margin) {
+        int x0 = Math.max(0, rect.x - margin);
+        int y0 = Math.max(0, rect.y - margin);
+        int x1 = Math.min(width, rect.x + rect.w + margin);
+        int y1 = Math.min(height, rect.y + rect.h + margin);
+        return new GridRectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /* The number of grid cells in the woods square around x, y. */
+    private int woodsArea(int x, int y) {
+        int w = Math.min(width - 1, x + WOODS_RADIUS) - Math.max(0, x - WOODS_RADIUS) + 1;
+        int h = Math.min(height - 1, y + WOODS_RADIUS) - Math.max(0, y - WOODS_RADIUS) + 1;
+        return w * h;
+    }
+
+    /* Combine the stored terms with the pollution. */
+    private void applyPollution(GridRectangle rect) {
+        float[] pollution = model.getPollution().field();
+        boolean current = pollution.length == value.length;
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int i = rect.x + width * y, end = i + rect.w; i < end; i++) {
+                float p = current ? pollution[i] : 0;
+                value[i] = Math.max(0, base[i] - POLLUTION_PENALTY * p);
+            }
+        }
+    }
+
+    /* Set the water distances of the cells in out, using the water in
+     * window, which holds every water cell within WATER_DISTANCE of out.
+     */
+    private void waterDistances(GridRectangle out, GridRectangle window) {
+        int w = window.w;
+        int h = window.h;
+        double[] squared = new double[w * h];
+        int n = Math.max(w, h);
+        double[] f = new double[n];
+        double[] d = new double[n];
+        int[] v = new int[n];
+        double[] z = new double[n + 1];
+
+        // Down each column of the window
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                f[y] = kind[window.x + x + width * (window.y + y)] == WATER ? 0 : FAR;
+            }
+            transform(f, h, d, v, z);
+            for (int y = 0; y < h; y++) {
+                squared[x + w * y] = d[y];
+            }
+        }
+
+        // Along each row of out
+        for (int y = out.y - window.y; y < out.y - window.y + out.h; y++) {
+            System.arraycopy(squared, w * y, f, 0, w);
+            transform(f, w, d, v, z);
+            for (int x = out.x - window.x; x < out.x - window.x + out.w; x++) {
+                waterDistance[window.x + x + width * (window.y + y)] =
+                        (float)Math.min(WATER_DISTANCE, Math.sqrt(d[x]));
+            }
+        }
+    }
+
+    /* One dimensional squared distance transform of f[0 .. n - 1] into d:
+     * the lower envelope of the parabolas rooted at each f[q].
+     */
+    private static void transform(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = Double.NEGATIVE_INFINITY;
+        z[1] = Double.POSITIVE_INFINITY;
+        for (int q = 1; q < n; q++) {
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            d[q] = (double)(q - v[k]) * (q - v[k]) + f[v[k]];
+        }
+    }
+
+    /* Where the parabolas rooted at q and p intersect. */
+    private static double intersection(double[] f, int q, int p) {
+        return ((f[q] + (double)q * q) - (f[p] + (double)p * p)) / (2.0 * (q - p));
+    }
+
+    /* Set the woods counts of the cells in out, using the woods in window,
+     * which holds every cell within WOODS_RADIUS of out.
+     */
+    private void woodsCounts(GridRectangle out, GridRectangle window) {
+        int w = window.w;
+        int h = window.h;
+        int[] rows = new int[w * h];
+
+        // Running sums along the rows of the window
+        for (int y = 0; y < h; y++) {
+            int row = window.x + width * (window.y + y);
+            int sum = 0;
+            for (int x = 0; x < Math.min(w, WOODS_RADIUS); x++) {
+                sum += kind[row + x] == WOODS ? 1 : 0;
+            }
+            for (int x = 0; x < w; x++) {
+                if (x + WOODS_RADIUS < w)
+                    sum += kind[row + x + WOODS_RADIUS] == WOODS ? 1 : 0;
+                rows[x + w * y] = sum;
+                if (x - WOODS_RADIUS >= 0)
+                    sum -= kind[row + x - WOODS_RADIUS] == WOODS ? 1 : 0;
+            }
+        }
+
+        // Running sums down the columns of out
+        for (int x = out.x - window.x; x < out.x - window.x + out.w; x++) {
+            int sum = 0;
+            for (int y = 0; y < Math.min(h, WOODS_RADIUS); y++) {
+                sum += rows[x + w * y];
+            }
+            for (int y = 0; y < h; y++) {
+                if (y + WOODS_RADIUS < h)
+                    sum += rows[x + w * (y + WOODS_RADIUS)];
+                int gy = window.y + y;
+                if (gy >= out.y && gy < out.y + out.h)
+                    woodsCount[window.x + x + width * gy] = (short)sum;
+                if (y - WOODS_RADIUS >= 0)
+                    sum -= rows[x + w * (y - WOODS_RADIUS)];
+            }
+        }
+    }
+
+    /**
+     * Recompute the value around the cells whose river or woods status
+     * changed.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                byte k = kindOf(grid.cellAt(x, y).getCellType());
+                int i = x + width * y;
+                if (kind[i] != k) {
+                    kind[i] = k;
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        if (maxX >= 0) {
+            recompute(new GridRectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+        }
+    }
+
+    /* The kind of a cell for the land value. */
+    private static byte kindOf(CellType type) {
+        switch (type) {
+            case RIVER:
+                return WATER;
+            case WOODS:
+                return WOODS;
+            default:
+                return OTHER;
+        }
+    }
+
+    /* Make sure the arrays match the grid. */
+    private void checkSize() {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+    }
+
+    /* Allocate the storage for a new grid size. Every cell starts as OTHER,
+     * so the values are those of a grid with no river or woods.
+     */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        int size = width * height;
+        kind = new byte[size];
+        waterDistance = new float[size];
+        woodsCount = new short[size];
+        base = new float[size];
+        value = new float[size];
+        Arrays.fill(waterDistance, WATER_DISTANCE);
+        Arrays.fill(base, BASE);
+        Arrays.fill(value, BASE);
+    }
+}
@@ -0,0 +1,88 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A Prng using the linear congruential generator of java.util.Random.
+ *
+ * The seeding, the generator and the nextInt, nextInt(bound), nextLong,
+ * nextDouble and nextBoolean methods of Random are reproduced exactly, so a
+ * LcgRandom gives the same numbers as a Random with the same seed. This keeps
+ * seeded games and maps the same as before. The 48 bit state is kept in a
+ * plain field rather than in the AtomicLong Random updates on every call.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class LcgRandom implements Prng {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Create a generator with the given seed.
+     * @param seed the initial seed
+     */
+    LcgRandom(long seed) {
+        setSeed(seed);
+    }
+
+    @Override public void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /* The next bits random bits, as in Random. */
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int)(state >>> (48 - bits));
+    }
+
+    @Override public int nextInt() {
+        return next(32);
+    }
+
+    @Override public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = next(31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int)((bound * (long)r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+            // Reject values from the incomplete last block
+        }
+        return r;
+    }
+
+    @Override public long nextLong() {
+        return ((long)next(32) << 32) + next(32);
+    }
+
+    @Override public double nextDouble() {
+        return (((long)next(26) << 27) + next(27)) * 0x1.0p-53;
+    }
+
+    @Override public boolean nextBoolean() {
+        return next(1) != 0;
+    }
+
+    @Override public Prng split() {
+        return new LcgRandom(nextLong());
+    }
+
+    @Override public long[] getState() {
+        return new long[] { state };
+    }
+
+    @Override public void setState(long[] state) {
+        this.state = state[0] & MASK;
+    }
+}
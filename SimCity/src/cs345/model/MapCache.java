@@ -0,0 +1,322 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * An on disk cache of generated maps.
+ *
+ * The cache is turned on by setting the property cs345opolis.mapcache.dir
+ * to the directory for the cache. Each map is stored in its own file, named
+ * by the SHA-256 hash of the map's size and the generator's cache key, so
+ * a map that would be generated again is read from the file instead. A map
+ * is only cached if the generator can reproduce it, which for the classic
+ * generator means the random seed was set.
+ *
+ * A file holds a header followed by the terrain codes packed four to a
+ * byte:
+ *   int magic, int version, int width, int height,
+ *   int state length, longs of the generator state after the map,
+ *   int key length, key (UTF-8),
+ *   packed terrain, cell x + width * y in bits 2 * (i % 4) of byte i / 4
+ * Files are memory mapped to be read and are written under a temporary
+ * name and then renamed, so several games can share one directory.
+ *
+ * The total size of the files is kept under cs345opolis.mapcache.maxSize
+ * bytes by deleting the least recently used files, using the modification
+ * time of a file as the time it was last used.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class MapCache {
+
+    public static final String DIR_PROP = "cs345opolis.mapcache.dir";
+    public static final String MAX_SIZE_PROP = "cs345opolis.mapcache.maxSize";
+
+    private static final int MAGIC = 0x43534D50; // "CSMP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24; // Not including state and key
+    private static final String SUFFIX = ".map";
+
+    private final Path dir;
+    private final long maxSize;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Create the cache selected by the given properties.
+     * @param props the properties for the game
+     * @return the cache, or null if the cache is turned off
+     */
+    static MapCache fromProperties(Properties props) {
+        String dirName = props.getProperty(DIR_PROP);
+        if (dirName == null || dirName.isBlank()) {
+            return null;
+        }
+        long maxSize = Long.parseLong(props.getProperty(MAX_SIZE_PROP, "67108864"));
+        return new MapCache(Paths.get(dirName), maxSize);
+    }
+
+    /**
+     * Create a cache using the given directory, which is created if needed.
+     * @param dir the directory for the cache files
+     * @param maxSize the maximum total size of the files in bytes
+     */
+    public MapCache(Path dir, long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Map cache size must be positive");
+        }
+        this.dir = dir;
+        this.maxSize = maxSize;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create map cache " + dir, e);
+        }
+    }
+
+    /**
+     * Return the number of maps read from the cache.
+     * @return the number of hits
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of maps that had to be generated.
+     * @return the number of misses
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Fill the terrain with the next map of the generator, reading it from
+     * the cache if it is there and generating and saving it if it is not.
+     * Either way the generator is left as generating the map would leave it.
+     * Problems with the cache files are not errors; the map is generated.
+     * @param generator the generator for the map
+     * @param terrain the terrain to be filled
+     */
+    public void generateTerrain(TerrainGenerator generator, Terrain terrain) {
+        String key = generator.cacheKey();
+        if (key == null) {
+            generator.generateTerrain(terrain);
+            return;
+        }
+        key = terrain.getWidth() + "x" + terrain.getHeight() + " " + key;
+        Path file = dir.resolve(fileName(key));
+        long[] state = load(file, key, terrain);
+        if (state != null) {
+            hits++;
+            generator.setState(state);
+            return;
+        }
+        misses++;
+        generator.generateTerrain(terrain);
+        save(file, key, generator.getState(), terrain);
+        evict();
+    }
+
+    /* Read the map from the file into terrain. Returns the generator state,
+     * or null if the file is missing or does not hold the map.
+     */
+    private long[] load(Path file, String key, Terrain terrain) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long size = channel.size();
+            int cellCount = terrain.getWidth() * terrain.getHeight();
+            if (size < HEADER_SIZE + keyBytes.length + (cellCount + 3) / 4) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getInt() != terrain.getWidth()
+                    || buffer.getInt() != terrain.getHeight()) {
+                return null;
+            }
+            int stateLength = buffer.getInt();
+            if (size != HEADER_SIZE + 8L * stateLength + keyBytes.length + (cellCount + 3) / 4) {
+                return null;
+            }
+            long[] state = new long[stateLength];
+            buffer.asLongBuffer().get(state);
+            buffer.position(buffer.position() + 8 * stateLength);
+            if (buffer.getInt() != keyBytes.length) {
+                return null;
+            }
+            byte[] fileKey = new byte[keyBytes.length];
+            buffer.get(fileKey);
+            if (!MessageDigest.isEqual(fileKey, keyBytes)) {
+                return null;
+            }
+            unpack(buffer, terrain.cells());
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return state;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Map cache read failed: " + e);
+            return null;
+        }
+    }
+
+    /* Write the map to the file. */
+    private void save(Path file, String key, long[] state, Terrain terrain) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] cells = terrain.cells();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * state.length + keyBytes.length
+                + (cells.length + 3) / 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(terrain.getWidth()).putInt(terrain.getHeight());
+        buffer.putInt(state.length);
+        for (long word : state) {
+            buffer.putLong(word);
+        }
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        pack(cells, buffer);
+        buffer.flip();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir, "map", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Map cache write failed: " + e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing more can be done
+                }
+            }
+        }
+    }
+
+    /* Delete the least recently used files until the cache fits. */
+    private void evict() {
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>)files::iterator) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        Entry entry = new Entry(file, Files.size(file),
+                                Files.getLastModifiedTime(file).toMillis());
+                        entries.add(entry);
+                        total += entry.size;
+                    } catch (NoSuchFileException e) {
+                        // Removed by another game
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Map cache eviction failed: " + e);
+            return;
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.lastUsed));
+        for (Entry entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.file);
+            } catch (IOException e) {
+                System.err.println("Map cache eviction failed: " + e);
+            }
+            total -= entry.size;
+        }
+    }
+
+    /* A cache file found during eviction. */
+    private static final class Entry {
+        final Path file;
+        final long size;
+        final long lastUsed;
+
+        Entry(Path file, long size, long lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /* Pack the terrain codes four to a byte. */
+    private static void pack(byte[] cells, ByteBuffer buffer) {
+        int i = 0;
+        for (; i + 4 <= cells.length; i += 4) {
+            buffer.put((byte)(cells[i] | cells[i + 1] << 2 | cells[i + 2] << 4 | cells[i + 3] << 6));
+        }
+        if (i < cells.length) {
+            int last = 0;
+            for (int shift = 0; i < cells.length; i++, shift += 2) {
+                last |= cells[i] << shift;
+            }
+            buffer.put((byte)last);
+        }
+    }
+
+    /* Unpack terrain codes packed by pack. */
+    private static void unpack(ByteBuffer buffer, byte[] cells) {
+        int i = 0;
+        for (; i + 4 <= cells.length; i += 4) {
+            int b = buffer.get();
+            cells[i] = (byte)(b & 3);
+            cells[i + 1] = (byte)((b >> 2) & 3);
+            cells[i + 2] = (byte)((b >> 4) & 3);
+            cells[i + 3] = (byte)((b >> 6) & 3);
+        }
+        if (i < cells.length) {
+            int b = buffer.get();
+            for (int shift = 0; i < cells.length; i++, shift += 2) {
+                cells[i] = (byte)((b >> shift) & 3);
+            }
+        }
+    }
+
+    /* The file name for a key: the hex SHA-256 hash of the key. */
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is not available", e);
+        }
+    }
+}
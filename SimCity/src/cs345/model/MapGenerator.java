@@ -6,31 +6,52 @@
 
 package cs345.model;
 
-import cs345.model.cell.CellType;
-import static cs345.model.cell.CellType.*;
-import cs345.model.cell.Dirt;
-import cs345.model.cell.River;
-import cs345.model.cell.Woods;
+import static cs345.model.Terrain.*;
 
 import java.util.Properties;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * Generator for new Maps. The method newMap(Grid) is called to initialize the
  * grid with a new Map.
  *
+ * The map is generated in a Terrain buffer, one byte per cell, which is
+ * copied into the grid when generation is complete. The grid creates the
+ * Cells from the terrain as they are used. The buffer is kept between maps
+ * of the same size.
+ *
+ * There are two ways of generating a map. The classic generator follows
+ * the micropolis algorithm with a single sequential random number
+ * generator. The tiled generator (property cs345opolis.mapgenerator.tiled)
+ * is meant for very large maps: rivers are still drawn sequentially, but
+ * the map is split into square tiles and the lakes and trees of each tile
+ * are placed by a task on a ForkJoinPool, using a random number generator
+ * seeded from the map seed and the tile coordinates. Features may spill up
+ * to a few cells into neighboring tiles. Every task of a phase writes the
+ * same value (river for lakes, woods over dirt for trees), so the map does
+ * not depend on the order the tasks run in or on the number of threads.
+ * The trees are smoothed tile by tile in a wavefront that gives the same
+ * result as the classic in-place smoothing.
+ *
  * This generator is a modified version of the map generator program from
  * micropolis, java version. (See http://github.com/jason17055/micropolis-java.)
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
-public class MapGenerator {
+public class MapGenerator implements TerrainGenerator {
 
     public static final String CREATE_ISLAND_PROP = "cs345opolis.mapgenerator.createIsland";
     public static final String TREE_LEVEL_PROP = "cs345opolis.mapgenerator.treeLevel";
     public static final String CURVE_LEVEL_PROP = "cs345opolis.mapgenerator.curveLevel";
     public static final String LAKE_LEVEL_PROP = "cs345opolis.mapgenerator.lakeLevel";
     public static final String RANDOM_SEED_PROP = "cs345opolis.mapgenerator.randomSeed";
+    public static final String TILED_PROP = "cs345opolis.mapgenerator.tiled";
+    public static final String TILE_SIZE_PROP = "cs345opolis.mapgenerator.tileSize";
+    public static final String THREADS_PROP = "cs345opolis.mapgenerator.threads";
+    public static final String ISLAND_SHAPE_PROP = "cs345opolis.mapgenerator.islandShape";
 
     /**
      * Setting that determines whether to generate a new map as an island.
@@ -47,6 +68,22 @@ public class MapGenerator {
      */
     private CreateIsland createIsland;
 
+    /**
+     * How the coast of an island is made. STAMPED stamps river blobs along
+     * the edges of the map. FIELD uses the same random blob positions to
+     * work out how far the water reaches in from each edge and then sets
+     * each cell once, by comparing its distance from the edges with those
+     * depths. The two give the same kind of coast; FIELD leaves out the odd
+     * patch of land between the blobs and the edge of the map.
+     */
+    public enum IslandShape
+    {
+        STAMPED,
+        FIELD
+    }
+
+    private IslandShape islandShape = IslandShape.STAMPED;
+
     /**
      * Levels for map feature creation. Level meaning are:
      *   positive -- roughly the number of features to randomly place
@@ -57,10 +94,21 @@ public class MapGenerator {
     private int curveLevel = -1; //level for river curviness
     private int lakeLevel = -1; //level for lake creation
 
+    /* Settings for the tiled generator. A thread count of zero uses the
+     * common ForkJoinPool.
+     */
+    private boolean tiled = false;
+    private int tileSize = 256;
+    private int threads = 0;
+
     /* Remember the original seed for the random number generator. */
     private String prngSeed = null;
 
-    private Random prng = null;
+    private Prng.Type prngType = Prng.Type.RANDOM;
+    private Prng prng = null;
+
+    /* True if the maps generated are reproducible from the seed. */
+    private boolean seeded = false;
 
     /**
      * Create a new MapGenerator with default values.
@@ -68,15 +116,18 @@ public class MapGenerator {
     public MapGenerator(Properties props) {
         getProperties(props);
         if (prngSeed != null) {
-            prng = new Random(Long.parseLong(prngSeed));
+            prng = Prng.newPrng(prngType, Long.parseLong(prngSeed));
+            seeded = true;
         } else {
-            prng = new Random();
+            prng = Prng.newPrng(prngType);
         }
     }
 
     private void getProperties(Properties props) {
         this.createIsland = CreateIsland.valueOf(
                 props.getProperty(CREATE_ISLAND_PROP, "SELDOM"));
+        this.islandShape = IslandShape.valueOf(
+                props.getProperty(ISLAND_SHAPE_PROP, "STAMPED"));
         this.treeLevel = Integer.parseInt(
                 props.getProperty(TREE_LEVEL_PROP, "-1"));
         this.curveLevel = Integer.parseInt(
@@ -84,6 +135,16 @@ public class MapGenerator {
         this.lakeLevel = Integer.parseInt(
                 props.getProperty(LAKE_LEVEL_PROP, "-1"));
         prngSeed = props.getProperty(RANDOM_SEED_PROP);
+        this.prngType = Prng.typeOf(props);
+        this.tiled = Boolean.parseBoolean(
+                props.getProperty(TILED_PROP, "false"));
+        this.tileSize = Integer.parseInt(
+                props.getProperty(TILE_SIZE_PROP, "256"));
+        this.threads = Integer.parseInt(
+                props.getProperty(THREADS_PROP, "0"));
+        if (tileSize < 16) {
+            throw new IllegalArgumentException("Tile size must be at least 16");
+        }
     }
 
     /**
@@ -92,12 +153,18 @@ public class MapGenerator {
      * @param props the properties to be checked
      * @return true if properties have not changed
      */
-    boolean sameProperties(Properties props) {
+    @Override public boolean sameProperties(Properties props) {
         String prngSeedProp = props.getProperty(RANDOM_SEED_PROP);
-        return createIsland.name().equals(props.getProperty(CREATE_ISLAND_PROP, "SELDOM")) &&
+        return TerrainGenerator.typeOf(props) == Type.CLASSIC &&
+                createIsland.name().equals(props.getProperty(CREATE_ISLAND_PROP, "SELDOM")) &&
+                islandShape.name().equals(props.getProperty(ISLAND_SHAPE_PROP, "STAMPED")) &&
                 treeLevel == Integer.parseInt(props.getProperty(TREE_LEVEL_PROP, "-1")) &&
                 curveLevel == Integer.parseInt(props.getProperty(CURVE_LEVEL_PROP, "-1")) &&
                 lakeLevel == Integer.parseInt(props.getProperty(LAKE_LEVEL_PROP, "-1")) &&
+                tiled == Boolean.parseBoolean(props.getProperty(TILED_PROP, "false")) &&
+                tileSize == Integer.parseInt(props.getProperty(TILE_SIZE_PROP, "256")) &&
+                threads == Integer.parseInt(props.getProperty(THREADS_PROP, "0")) &&
+                prngType == Prng.typeOf(props) &&
                 ((prngSeed != null && prngSeed.equals(prngSeedProp)) ||
                  (prngSeed == null && prngSeedProp == null));
     }
@@ -175,10 +242,37 @@ public class MapGenerator {
      */
     public void setRandomSeed(long seed) {
         prng.setSeed(seed);
+        seeded = true;
+    }
+
+    /**
+     * Return the key for the next map. Everything that affects the map is
+     * included: the settings and the current state of the random number
+     * generator. The number of threads is not, since it does not change the
+     * map. There is no key unless the generator was seeded.
+     * @return the key, or null if the map cannot be reproduced
+     */
+    @Override public String cacheKey() {
+        if (!seeded) {
+            return null;
+        }
+        return "CLASSIC createIsland=" + createIsland + " islandShape=" + islandShape +
+                " treeLevel=" + treeLevel +
+                " curveLevel=" + curveLevel + " lakeLevel=" + lakeLevel +
+                (tiled ? " tileSize=" + tileSize : "") + " prng=" + prngType +
+                " state=" + Arrays.toString(prng.getState());
     }
 
-    /* The model for this map. */
-    private Cs345Opolis model;
+    @Override public long[] getState() {
+        return prng.getState();
+    }
+
+    @Override public void setState(long[] state) {
+        prng.setState(state);
+    }
+
+    /* The terrain for the map being generated. */
+    private Terrain terrain = null;
 
     /* Working storage for grid locations. */
     private int xStart;
@@ -192,60 +286,188 @@ public class MapGenerator {
      * Generate a map for the given Grid. Using the configuration parameters.
      * @param model the Cs345Opolis model for this map
      */
-    public void generateMap(Cs345Opolis model) {
-        this.model = model;
+    @Override public void generateMap(Cs345Opolis model) {
         Grid grid = model.getGrid();
+        if (terrain == null || terrain.getWidth() != grid.getWidth()
+                || terrain.getHeight() != grid.getHeight()) {
+            terrain = new Terrain(grid.getWidth(), grid.getHeight());
+        }
+        generateTerrain(terrain);
+        grid.setTerrain(terrain);
+    }
+
+    /**
+     * Generate a map in the given terrain buffer. Using the configuration
+     * parameters.
+     * @param terrain the terrain to be filled
+     */
+    @Override public void generateTerrain(Terrain terrain) {
+        if (tiled) {
+            generateTiled(terrain);
+            return;
+        }
         switch (createIsland) {
             case SELDOM:
                 if (prng.nextInt(100) < 10) { //10% chance of generating an island
-                    makeIsland(grid);
+                    makeIsland(terrain);
                     return;
                 }
             case NEVER:
-                grid.fill(Dirt::new);
+                terrain.fill(DIRT);
                 break;
             case ALWAYS:
-                makeNakedIsland(grid);
+                makeNakedIsland(terrain);
                 break;
         }
 
-        getRandStart(grid);
+        getRandStart(terrain);
 
         if (curveLevel != 0) {
-            doRivers(grid);
+            doRivers(terrain);
         }
 
         if (lakeLevel != 0) {
-            makeLakes(grid);
+            makeLakes(terrain);
         }
 
-        smoothRiver(grid);
+        smoothRiver(terrain);
 
         if (treeLevel != 0) {
-            doTrees(grid);
+            doTrees(terrain);
         }
     }
 
-    private void makeIsland(Grid grid) {
-        makeNakedIsland(grid);
-        smoothRiver(grid);
-        doTrees(grid);
+    /**
+     * Generate new terrain for part of a map, as if the part were a small
+     * map of its own. Rivers cross it from a random starting point and the
+     * lake and tree levels are the number of features in the part; random
+     * levels give a number of features in proportion to the area, but at
+     * least the chance of one. There are no islands and the trees are left
+     * for smoothRegion to smooth.
+     * @param region the terrain to be filled
+     * @param x the map x coordinate of the left edge of the region, unused
+     * @param y the map y coordinate of the top edge of the region, unused
+     * @param seed the seed for the new terrain
+     */
+    @Override public void generateRegion(Terrain region, int x, int y, long seed) {
+        // Use a generator for the region so the sequence of maps is unchanged
+        Prng mapPrng = prng;
+        prng = Prng.newPrng(prngType, seed);
+        try {
+            region.fill(DIRT);
+            getRandStart(region);
+            if (curveLevel != 0) {
+                doRivers(region);
+            }
+            if (lakeLevel != 0) {
+                regionLakes(region);
+            }
+            if (treeLevel != 0) {
+                regionTrees(region);
+            }
+        } finally {
+            prng = mapPrng;
+        }
+    }
+
+    /**
+     * Smooth the trees of the new terrain in rect twice, as the trees of a
+     * whole map are smoothed. Cells around rect are read but not changed, so
+     * the woods at the edge of rect join up with the woods around it.
+     * @param context the terrain of the region and the cells around it
+     * @param rect the new terrain within context
+     */
+    @Override public void smoothRegion(Terrain context, GridRectangle rect) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (int y = rect.y; y < rect.y + rect.h; y++) {
+                for (int x = rect.x; x < rect.x + rect.w; x++) {
+                    if (context.get(x, y) == WOODS) {
+                        int bitindex = 0;
+                        if (x > 0 && context.get(x - 1, y) == WOODS) bitindex |= 8;
+                        if (y < context.getHeight() - 1 && context.get(x, y + 1) == WOODS) bitindex |= 4;
+                        if (x < context.getWidth() - 1 && context.get(x + 1, y) == WOODS) bitindex |= 2;
+                        if (y > 0 && context.get(x, y - 1) == WOODS) bitindex |= 1;
+                        context.set(x, y, TEdTab[bitindex]);
+                    }
+                }
+            }
+        }
+    }
+
+    /* Place the lakes for a region. */
+    private void regionLakes(Terrain region) {
+        int width = region.getWidth();
+        int height = region.getHeight();
+        int lim1;
+        if (lakeLevel < 0) {
+            int maxLakes = (11 * width * height) / 12000;
+            lim1 = prng.nextInt(Math.max(2, maxLakes));
+        } else
+            lim1 = lakeLevel / 2;
+
+        for (int t = 0; t < lim1; t++)
+        {
+            int x = prng.nextInt(width);
+            int y = prng.nextInt(height);
+            int lim2 = prng.nextInt(13) + 2;
+
+            for (int z = 0; z < lim2; z++)
+            {
+                int lakeX = x - 6 + prng.nextInt(13);
+                int lakeY = y - 6 + prng.nextInt(13);
+
+                if (prng.nextInt(5) != 0)
+                    plop(region, SRMatrix, lakeX, lakeY);
+                else
+                    plop(region, BRMatrix, lakeX, lakeY);
+            }
+        }
+    }
+
+    /* Splash the trees for a region. */
+    private void regionTrees(Terrain region) {
+        int width = region.getWidth();
+        int height = region.getHeight();
+        int amount;
+        if (treeLevel < 0) {
+            amount = Math.max(1, ((prng.nextInt(101) + 50) * width * height) / 12000);
+        }
+        else {
+            amount = treeLevel + 3;
+        }
+
+        for (int n = 0; n < amount; n++) {
+            int xloc = prng.nextInt(width);
+            int yloc = prng.nextInt(height);
+            splash(region, prng, xloc, yloc, splashDistance(prng));
+        }
+    }
+
+    private void makeIsland(Terrain terrain) {
+        makeNakedIsland(terrain);
+        smoothRiver(terrain);
+        doTrees(terrain);
     }
 
     private int erand(int limit) {
         return Math.min(prng.nextInt(limit), prng.nextInt(limit));
     }
 
-    private void makeNakedIsland(Grid grid) {
+    private void makeNakedIsland(Terrain terrain) {
         final int ISLAND_RADIUS = 18;
-        final int WORLD_X = grid.getWidth();
-        final int WORLD_Y = grid.getHeight();
+        final int WORLD_X = terrain.getWidth();
+        final int WORLD_Y = terrain.getHeight();
+
+        if (islandShape == IslandShape.FIELD) {
+            makeFieldIsland(terrain, ISLAND_RADIUS);
+            return;
+        }
 
-        grid.fill(River::new);
+        terrain.fill(RIVER);
 
         for (int y = 5; y < WORLD_Y - 5; y++) {
             for (int x = 5; x < WORLD_X - 5; x++) {
-                grid.setCellAt(x, y, new Dirt(model, new GridLocation(x, y)));
+                terrain.set(x, y, DIRT);
             }
         }
 
@@ -253,52 +475,139 @@ public class MapGenerator {
         {
             mapX = x;
             mapY = erand(ISLAND_RADIUS+1);
-            BRivPlop(grid);
+            BRivPlop(terrain);
             mapY = (WORLD_Y - 10) - erand(ISLAND_RADIUS+1);
-            BRivPlop(grid);
+            BRivPlop(terrain);
             mapY = 0;
-            SRivPlop(grid);
+            SRivPlop(terrain);
             mapY = WORLD_Y - 6;
-            SRivPlop(grid);
+            SRivPlop(terrain);
         }
 
         for (int y = 0; y < WORLD_Y - 5; y += 2)
         {
             mapY = y;
             mapX = erand(ISLAND_RADIUS+1);
-            BRivPlop(grid);
+            BRivPlop(terrain);
             mapX = (WORLD_X - 10) - erand(ISLAND_RADIUS+1);
-            BRivPlop(grid);
+            BRivPlop(terrain);
             mapX = 0;
-            SRivPlop(grid);
+            SRivPlop(terrain);
             mapX = (WORLD_X - 6);
-            SRivPlop(grid);
+            SRivPlop(terrain);
+        }
+    }
+
+    /* Make the island of makeNakedIsland in a single pass over the map.
+     *
+     * The random numbers are drawn in the same order as the stamps of
+     * makeNakedIsland. Each stamp only extends the water reaching in from
+     * its edge, so for each edge and each position along it the depth of
+     * the water is the deepest reach of the 5 cell border or any stamp
+     * covering that position. A cell is then water if its distance from
+     * any edge is less than that edge's depth at the cell. The work is
+     * linear in the size of the map and every cell is written once.
+     */
+    private void makeFieldIsland(Terrain terrain, int radius) {
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        int[] top = new int[width];
+        int[] bottom = new int[width];
+        int[] left = new int[height];
+        int[] right = new int[height];
+        Arrays.fill(top, 5);
+        Arrays.fill(bottom, 5);
+        Arrays.fill(left, 5);
+        Arrays.fill(right, 5);
+
+        for (int x = 0; x < width - 5; x += 2) {
+            reach(top, x, erand(radius + 1), BR_LAST, 1);
+            reach(bottom, x, 10 + erand(radius + 1), BR_FIRST, -1);
+            reach(top, x, 0, SR_LAST, 1);
+            reach(bottom, x, 6, SR_FIRST, -1);
+        }
+        for (int y = 0; y < height - 5; y += 2) {
+            reach(left, y, erand(radius + 1), BR_LAST, 1);
+            reach(right, y, 10 + erand(radius + 1), BR_FIRST, -1);
+            reach(left, y, 0, SR_LAST, 1);
+            reach(right, y, 6, SR_FIRST, -1);
+        }
+
+        // Away from the top and bottom only the left and right depths matter,
+        // so those rows are water, dirt, water
+        int topDepth = Arrays.stream(top).max().orElse(0);
+        int bottomDepth = Arrays.stream(bottom).max().orElse(0);
+        byte[] cells = terrain.cells();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int dirtStart = Math.min(left[y], width);
+            int dirtEnd = Math.max(dirtStart, width - right[y]);
+            if (y >= topDepth && height - 1 - y >= bottomDepth) {
+                Arrays.fill(cells, row, row + dirtStart, RIVER);
+                Arrays.fill(cells, row + dirtStart, row + dirtEnd, DIRT);
+                Arrays.fill(cells, row + dirtEnd, row + width, RIVER);
+            } else {
+                for (int x = 0; x < width; x++) {
+                    boolean water = y < top[x] || height - 1 - y < bottom[x]
+                            || x < dirtStart || x >= dirtEnd;
+                    cells[row + x] = water ? RIVER : DIRT;
+                }
+            }
         }
     }
 
-    private void getRandStart(Grid grid) {
-        int width3 = grid.getWidth() / 3;
-        int height3 = grid.getHeight() / 3;
-        xStart = width3 + prng.nextInt(grid.getWidth() - 2 * width3);
-        yStart = height3 + prng.nextInt(grid.getHeight() - 2 * height3);
+    /* Extend the depths along an edge for a stamp at position at. The stamp
+     * covers positions at + c for each c with an extent; its water reaches
+     * offset + sign * extent[c] + 1 cells in from the edge.
+     */
+    private static void reach(int[] depth, int at, int offset, int[] extent, int sign) {
+        for (int c = 0; c < extent.length && at + c < depth.length; c++) {
+            if (extent[c] >= 0) {
+                depth[at + c] = Math.max(depth[at + c], offset + sign * extent[c] + (sign > 0 ? 1 : 0));
+            }
+        }
+    }
+
+    /* The first and last row of each column of a matrix that has water, or
+     * -1 for an empty column. Both matrices are symmetric, so these are also
+     * the first and last columns of each row.
+     */
+    private static int[] extents(char[][] matrix, boolean last) {
+        int[] extent = new int[matrix.length];
+        for (int c = 0; c < matrix.length; c++) {
+            extent[c] = -1;
+            for (int r = 0; r < matrix.length; r++) {
+                if (matrix[r][c] != 0 && (last || extent[c] < 0)) {
+                    extent[c] = r;
+                }
+            }
+        }
+        return extent;
+    }
+
+    private void getRandStart(Terrain terrain) {
+        int width3 = terrain.getWidth() / 3;
+        int height3 = terrain.getHeight() / 3;
+        xStart = width3 + prng.nextInt(terrain.getWidth() - 2 * width3);
+        yStart = height3 + prng.nextInt(terrain.getHeight() - 2 * height3);
 
         mapX = xStart;
         mapY = yStart;
     }
 
-    private void makeLakes(Grid grid) {
+    private void makeLakes(Terrain terrain) {
         int lim1;
         if (lakeLevel < 0) {
             // max lakes is 11 for standard 120 x 100 grid
-            int maxLakes = (11 * grid.getWidth() * grid.getHeight()) / 12000;
+            int maxLakes = (11 * terrain.getWidth() * terrain.getHeight()) / 12000;
             lim1 = prng.nextInt(maxLakes);
         } else
             lim1 = lakeLevel / 2;
 
         for (int t = 0; t < lim1; t++)
         {
-            int x = prng.nextInt(grid.getWidth() - 20) + 10;
-            int y = prng.nextInt(grid.getHeight() - 19) + 10;
+            int x = prng.nextInt(terrain.getWidth() - 20) + 10;
+            int y = prng.nextInt(terrain.getHeight() - 19) + 10;
             int lim2 = prng.nextInt(13) + 2;
 
             for (int z = 0; z < lim2; z++)
@@ -307,29 +616,29 @@ public class MapGenerator {
                 mapY = y - 6 + prng.nextInt(13);
 
                 if (prng.nextInt(5) != 0)
-                    SRivPlop(grid);
+                    SRivPlop(terrain);
                 else
-                    BRivPlop(grid);
+                    BRivPlop(terrain);
             }
         }
     }
 
-    private void doRivers(Grid grid) {
+    private void doRivers(Terrain terrain) {
         dir = lastDir = prng.nextInt(4);
-        doBRiv(grid);
+        doBRiv(terrain);
 
         mapX = xStart;
         mapY = yStart;
         dir = lastDir = lastDir ^ 4;
-        doBRiv(grid);
+        doBRiv(terrain);
 
         mapX = xStart;
         mapY = yStart;
         lastDir = prng.nextInt(4);
-        doSRiv(grid);
+        doSRiv(terrain);
     }
 
-    private void doBRiv(Grid grid) {
+    private void doBRiv(Terrain terrain) {
         int r1, r2;
         if (curveLevel < 0) {
             r1 = 100;
@@ -339,8 +648,8 @@ public class MapGenerator {
             r2 = curveLevel + 100;
         }
 
-        while (grid.validCoords(mapX + 4, mapY + 4)) {
-            BRivPlop(grid);
+        while (terrain.validCoords(mapX + 4, mapY + 4)) {
+            BRivPlop(terrain);
             if (prng.nextInt(r1+1) < 10) {
                 dir = lastDir;
             } else {
@@ -355,7 +664,7 @@ public class MapGenerator {
         }
     }
 
-    private void doSRiv(Grid grid) {
+    private void doSRiv(Terrain terrain) {
         int r1, r2;
         if (curveLevel < 0) {
             r1 = 100;
@@ -365,8 +674,8 @@ public class MapGenerator {
             r2 = curveLevel + 100;
         }
 
-        while (grid.validCoords(mapX + 3, mapY + 3)) {
-            SRivPlop(grid);
+        while (terrain.validCoords(mapX + 3, mapY + 3)) {
+            SRivPlop(terrain);
             if (prng.nextInt(r1+1) < 10) {
                 dir = lastDir;
             } else {
@@ -393,12 +702,8 @@ public class MapGenerator {
             { 0, 0, 0, 3, 3, 3, 0, 0, 0 }
     };
 
-    private void BRivPlop(Grid grid) {
-        for (int x = 0; x < 9; x++) {
-            for (int y = 0; y < 9; y++) {
-                putOnMap(grid, BRMatrix[y][x], x, y);
-            }
-        }
+    private void BRivPlop(Terrain terrain) {
+        plop(terrain, BRMatrix, mapX, mapY);
     }
 
     private static final char [][] SRMatrix = new char[][] {
@@ -410,28 +715,27 @@ public class MapGenerator {
             { 0, 0, 3, 3, 0, 0 }
     };
 
-    private void SRivPlop(Grid grid)
+    private static final int[] BR_FIRST = extents(BRMatrix, false);
+    private static final int[] BR_LAST = extents(BRMatrix, true);
+    private static final int[] SR_FIRST = extents(SRMatrix, false);
+    private static final int[] SR_LAST = extents(SRMatrix, true);
+
+    private void SRivPlop(Terrain terrain)
     {
-        for (int x = 0; x < 6; x++)
-        {
-            for (int y = 0; y < 6; y++)
-            {
-                putOnMap(grid, SRMatrix[y][x], x, y);
-            }
-        }
+        plop(terrain, SRMatrix, mapX, mapY);
     }
 
-    private void putOnMap(Grid grid, char mapChar, int xoff, int yoff) {
-        if (mapChar == 0)
-            return;
-
-        int xloc = mapX + xoff;
-        int yloc = mapY + yoff;
-
-        if (!grid.validCoords(xloc, yloc))
-            return;
-
-        grid.setCellAt(xloc, yloc, new River(model, new GridLocation(xloc, yloc)));
+    /* Put river on the map for the non-zero entries of matrix, with the
+     * upper left corner of the matrix at x0, y0.
+     */
+    private static void plop(Terrain terrain, char[][] matrix, int x0, int y0) {
+        for (int x = 0; x < matrix.length; x++) {
+            for (int y = 0; y < matrix.length; y++) {
+                if (matrix[y][x] != 0 && terrain.validCoords(x0 + x, y0 + y)) {
+                    terrain.set(x0 + x, y0 + y, RIVER);
+                }
+            }
+        }
     }
 
 //    Ignore this for now
@@ -442,7 +746,7 @@ public class MapGenerator {
 //            RIVEDGE + 2, RIVEDGE + 4, RIVEDGE + 0,  RIVER
 //    };
 
-    private void smoothRiver(Grid grid) {
+    private void smoothRiver(Terrain terrain) {
 //        The purpose of this routine is to jigger river edge stuff.
 //        We'll worry about that in the future.
 //
@@ -477,9 +781,9 @@ public class MapGenerator {
 //        }
     }
 
-    private void doTrees(Grid grid) {
+    private void doTrees(Terrain terrain) {
         int amount;
-        int gridSize = grid.getHeight() * grid.getWidth();
+        int gridSize = terrain.getHeight() * terrain.getWidth();
 
         if (treeLevel < 0) {
             amount = ((prng.nextInt(101) + 50) * gridSize) / 12000;
@@ -489,36 +793,55 @@ public class MapGenerator {
         }
 
         for (int x = 0; x < amount; x++) {
-            int xloc = prng.nextInt(grid.getWidth());
-            int yloc = prng.nextInt(grid.getHeight());
-            treeSplash(grid, xloc, yloc);
+            int xloc = prng.nextInt(terrain.getWidth());
+            int yloc = prng.nextInt(terrain.getHeight());
+            treeSplash(terrain, xloc, yloc);
         }
 
-        smoothTrees(grid);
-        smoothTrees(grid);
+        smoothWoods(terrain);
     }
 
-    private void treeSplash(Grid grid, int xloc, int yloc) {
-        int dis;
+    /**
+     * Smooth the woods of a terrain as the classic generator does, with two
+     * passes of smoothTrees over the woods packed into a BitGrid. Woods that
+     * do not survive become dirt.
+     * @param terrain the terrain
+     */
+    public static void smoothWoods(Terrain terrain) {
+        BitGrid woods = BitGrid.of(terrain, WOODS);
+        smoothTrees(woods);
+        smoothTrees(woods);
+        woods.retain(terrain, WOODS, DIRT);
+    }
+
+    private void treeSplash(Terrain terrain, int xloc, int yloc) {
+        splash(terrain, prng, xloc, yloc, splashDistance(prng));
+    }
+
+    /* Number of steps for a tree splash. */
+    private int splashDistance(Prng rand) {
         if (treeLevel < 0) {
-            dis = prng.nextInt(151) + 50;
+            return rand.nextInt(151) + 50;
         }
         else {
-            dis = prng.nextInt(101 + (treeLevel*2)) + 50;
+            return rand.nextInt(101 + (treeLevel*2)) + 50;
         }
+    }
 
-        mapX = xloc;
-        mapY = yloc;
-
+    /* Walk randomly for dis steps from x, y, turning dirt into woods. The
+     * walk ends early if it leaves the map.
+     */
+    private static void splash(Terrain terrain, Prng rand, int x, int y, int dis) {
         for (int z = 0; z < dis; z++) {
-            int dir = prng.nextInt(8);
-            moveMap(dir);
+            int dir = rand.nextInt(8);
+            x += DIRECTION_TABX[dir];
+            y += DIRECTION_TABY[dir];
 
-            if (!grid.validCoords(mapX, mapY))
+            if (!terrain.validCoords(x, y))
                 return;
 
-            if (grid.cellAt(mapX, mapY).getCellType() == CellType.DIRT) {
-                grid.setCellAt(mapX, mapY, new Woods(model, new GridLocation(mapX, mapY)));
+            if (terrain.get(x, y) == DIRT) {
+                terrain.set(x, y, WOODS);
             }
         }
     }
@@ -531,40 +854,313 @@ public class MapGenerator {
         mapY += DIRECTION_TABY[dir];
     }
 
-    private static final int [] DX = new int[] { -1, 0, 1, 0 };
-    private static final int [] DY = new int[] { 0, 1, 0, -1 };
-    private static final CellType[] TEdTab = new CellType[] {
+    private static final byte[] TEdTab = new byte[] {
             DIRT,  DIRT,  DIRT,  WOODS,
             DIRT,  DIRT,  WOODS, WOODS,
             DIRT,  WOODS, DIRT,  WOODS,
             WOODS, WOODS, WOODS, WOODS };
 
-    private void smoothTrees(Grid grid) {
-        for (int mapY = 0; mapY < grid.getHeight(); mapY++) {
-            for (int mapX = 0; mapX < grid.getWidth(); mapX++) {
-                if (grid.cellAt(mapX, mapY).isTree()) {
+    /* Smooth the trees in place in row order, 64 cells at a time. A woods
+     * cell stays woods when TEdTab says so: when it has woods to its left or
+     * right and woods above or below. The cells to the left and above have
+     * already been updated and the cells to the right and below have not.
+     *
+     * The upper and lower neighbors are known for a whole word. A cell that
+     * passes that test and has old woods to its right stays woods; one
+     * without woods to its right stays woods only if the cell to its left
+     * does after its update. That is a carry chain, so an addition carries
+     * the result of each cell through any run of cells that depend on their
+     * left neighbor.
+     */
+    private static void smoothTrees(BitGrid woods) {
+        long[] bits = woods.words();
+        int n = woods.wordsPerRow();
+        int height = woods.getHeight();
+        for (int y = 0; y < height; y++) {
+            int row = y * n;
+            long carry = 0; // Updated value of the cell left of the word
+            for (int i = 0; i < n; i++) {
+                long old = bits[row + i];
+                if (old == 0) {
+                    carry = 0;
+                    continue;
+                }
+                long up = y > 0 ? bits[row - n + i] : 0;
+                long down = y < height - 1 ? bits[row + n + i] : 0;
+                long next = i + 1 < n ? bits[row + i + 1] : 0;
+                long right = (old >>> 1) | (next << 63);
+                long vertical = old & (up | down);
+                long keep = vertical & right; // Woods whatever is to the left
+                long follow = vertical & ~right; // Woods if left is woods
+                long chain = follow & ((follow + (keep << 1) + carry) ^ follow);
+                long updated = keep | chain;
+                bits[row + i] = updated;
+                carry = updated >>> 63;
+            }
+        }
+    }
+
+    /* Phases of the tiled generator, mixed into the tile seeds. */
+    private static final int LAKE_PHASE = 1;
+    private static final int TREE_PHASE = 2;
+
+    /* Generate a map with the tiled generator. */
+    private void generateTiled(Terrain terrain) {
+        long mapSeed = prng.nextLong();
+        boolean island = createIsland == CreateIsland.ALWAYS
+                || (createIsland == CreateIsland.SELDOM && prng.nextInt(100) < 10);
+        if (island) {
+            makeNakedIsland(terrain);
+        } else {
+            terrain.fill(DIRT);
+            getRandStart(terrain);
+            if (curveLevel != 0) {
+                doRivers(terrain);
+            }
+        }
+
+        int tilesX = (terrain.getWidth() + tileSize - 1) / tileSize;
+        int tilesY = (terrain.getHeight() + tileSize - 1) / tileSize;
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+        try {
+            if (!island && lakeLevel != 0) {
+                pool.invoke(new TileAction(0, tilesX * tilesY, tile -> tileLakes(terrain,
+                        tile % tilesX, tile / tilesX, tileRandom(mapSeed, tile % tilesX,
+                                tile / tilesX, LAKE_PHASE))));
+            }
+            if (island || treeLevel != 0) {
+                pool.invoke(new TileAction(0, tilesX * tilesY, tile -> tileTrees(terrain,
+                        tile % tilesX, tile / tilesX, tileRandom(mapSeed, tile % tilesX,
+                                tile / tilesX, TREE_PHASE))));
+                smoothTreesTiled(terrain, pool, tilesX, tilesY);
+                smoothTreesTiled(terrain, pool, tilesX, tilesY);
+            }
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /* Runs an action for each tile in a range, splitting the range among
+     * the threads of the pool.
+     */
+    private static class TileAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        TileAction(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+            } else if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TileAction(from, mid, action), new TileAction(mid, to, action));
+            }
+        }
+    }
+
+    /* Random number generator for one phase of one tile. The seed is a
+     * hash of the map seed, the tile coordinates and the phase.
+     */
+    private Prng tileRandom(long mapSeed, int tileX, int tileY, int phase) {
+        long z = mapSeed + 0x9E3779B97F4A7C15L * (((long)tileX << 32 | tileY) * 4 + phase + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return Prng.newPrng(prngType, z ^ (z >>> 31));
+    }
+
+    /* Number of features for a tile of the given area when level features
+     * are wanted on the whole map. The fraction is rounded at random.
+     */
+    private static int scaleLevel(Prng rand, int level, int area, int mapArea) {
+        long scaled = (long)level * area;
+        int amount = (int)(scaled / mapArea);
+        if (rand.nextInt(mapArea) < scaled % mapArea) {
+            amount++;
+        }
+        return amount;
+    }
+
+    /* Place the lakes for one tile. */
+    private void tileLakes(Terrain terrain, int tileX, int tileY, Prng rand) {
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        int x0 = Math.max(10, tileX * tileSize);
+        int x1 = Math.min(width - 10, (tileX + 1) * tileSize);
+        int y0 = Math.max(10, tileY * tileSize);
+        int y1 = Math.min(height - 9, (tileY + 1) * tileSize);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        int area = Math.min(tileSize, width - tileX * tileSize)
+                * Math.min(tileSize, height - tileY * tileSize);
+
+        int lim1;
+        if (lakeLevel < 0) {
+            int maxLakes = (11 * area) / 12000;
+            lim1 = maxLakes > 0 ? rand.nextInt(maxLakes) : 0;
+        } else
+            lim1 = scaleLevel(rand, lakeLevel / 2, area, width * height);
+
+        for (int t = 0; t < lim1; t++)
+        {
+            int x = x0 + rand.nextInt(x1 - x0);
+            int y = y0 + rand.nextInt(y1 - y0);
+            int lim2 = rand.nextInt(13) + 2;
+
+            for (int z = 0; z < lim2; z++)
+            {
+                int lakeX = x - 6 + rand.nextInt(13);
+                int lakeY = y - 6 + rand.nextInt(13);
+
+                if (rand.nextInt(5) != 0)
+                    plop(terrain, SRMatrix, lakeX, lakeY);
+                else
+                    plop(terrain, BRMatrix, lakeX, lakeY);
+            }
+        }
+    }
+
+    /* Splash the trees for one tile. */
+    private void tileTrees(Terrain terrain, int tileX, int tileY, Prng rand) {
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        int x0 = tileX * tileSize;
+        int y0 = tileY * tileSize;
+        int w = Math.min(tileSize, width - x0);
+        int h = Math.min(tileSize, height - y0);
+
+        int amount;
+        if (treeLevel < 0) {
+            amount = ((rand.nextInt(101) + 50) * w * h) / 12000;
+        }
+        else {
+            amount = scaleLevel(rand, treeLevel + 3, w * h, width * height);
+        }
+
+        for (int n = 0; n < amount; n++) {
+            int xloc = x0 + rand.nextInt(w);
+            int yloc = y0 + rand.nextInt(h);
+            splash(terrain, rand, xloc, yloc, splashDistance(rand));
+        }
+    }
+
+    /* Smooth the trees, giving the same result as smoothTrees. Within a
+     * tile the cells are updated in place in row order. A cell depends on
+     * the updated values of its left and upper neighbors and the old values
+     * of its right and lower neighbors, so a tile can be smoothed once the
+     * tiles to its left and above are done. The tiles are processed one
+     * anti-diagonal at a time and the tiles on a diagonal in parallel.
+     */
+    private void smoothTreesTiled(Terrain terrain, ForkJoinPool pool, int tilesX, int tilesY) {
+        for (int d = 0; d < tilesX + tilesY - 1; d++) {
+            int diagonal = d;
+            int first = Math.max(0, d - tilesY + 1);
+            int last = Math.min(d, tilesX - 1);
+            pool.invoke(new TileAction(first, last + 1,
+                    tileX -> smoothTile(terrain, tileX, diagonal - tileX)));
+        }
+    }
+
+    /* Smooth the trees of one tile in place in row order. */
+    private void smoothTile(Terrain terrain, int tileX, int tileY) {
+        byte[] cells = terrain.cells();
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        int xEnd = Math.min(width, (tileX + 1) * tileSize);
+        int yEnd = Math.min(height, (tileY + 1) * tileSize);
+        for (int y = tileY * tileSize; y < yEnd; y++) {
+            for (int x = tileX * tileSize; x < xEnd; x++) {
+                int i = x + width * y;
+                if (cells[i] == WOODS) {
                     int bitindex = 0;
-                    for (int z = 0; z < 4; z++) {
-                        bitindex <<= 1;
-                        int xtem = mapX + DX[z];
-                        int ytem = mapY + DY[z];
-                        if (grid.validCoords(xtem, ytem) &&
-                                grid.cellAt(xtem, ytem).isTree()) {
-                            bitindex |= 1;
-                        }
-                    }
-                    CellType newType = TEdTab[bitindex & 15];
-                    if (newType != grid.cellAt(mapX, mapY).getCellType())
-                        if (newType == DIRT) {
-                            grid.setCellAt(mapX, mapY, new Dirt(model, new GridLocation(mapX, mapY)));
-                        } else if (newType == WOODS) {
-                            grid.setCellAt(mapX, mapY, new Woods(model, new GridLocation(mapX, mapY)));
-                        } else {
-                            throw new IllegalStateException("Bad CellType: " + newType);
-                        }
+                    if (x > 0 && cells[i - 1] == WOODS) bitindex |= 8;
+                    if (y < height - 1 && cells[i + width] == WOODS) bitindex |= 4;
+                    if (x < width - 1 && cells[i + 1] == WOODS) bitindex |= 2;
+                    if (y > 0 && cells[i - width] == WOODS) bitindex |= 1;
+                    cells[i] = TEdTab[bitindex];
+                }
+            }
+        }
+    }
+
+    /** The highest land in a heightmap. */
+    public static final int MAX_HEIGHT = 100;
+
+    /**
+     * Return the heightmap for a map. The maps have no elevation of their
+     * own, so the land is taken to rise by one for every two cells from the
+     * nearest river, counting steps across and down, with woods one higher
+     * and the cells of every other square of a 2x2 checkerboard one higher
+     * again, to roughen the shore. Rivers are at height zero; a map without
+     * rivers is all at MAX_HEIGHT. The heightmap does not use the random
+     * number generator, so it is the same however the map was made.
+     * @param terrain the map
+     * @return the heights, from 0 to MAX_HEIGHT, indexed x + width * y
+     */
+    public static byte[] heights(Terrain terrain) {
+        int width = terrain.getWidth();
+        int height = terrain.getHeight();
+        byte[] cells = terrain.cells();
+        int[] distance = new int[width * height];
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        Arrays.fill(distance, -1);
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == RIVER) {
+                distance[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+
+        // Breadth first from the rivers
+        while (head < tail) {
+            int i = queue[head++];
+            int x = i % width;
+            int d = distance[i] + 1;
+            if (x > 0 && distance[i - 1] < 0) {
+                distance[i - 1] = d;
+                queue[tail++] = i - 1;
+            }
+            if (x < width - 1 && distance[i + 1] < 0) {
+                distance[i + 1] = d;
+                queue[tail++] = i + 1;
+            }
+            if (i >= width && distance[i - width] < 0) {
+                distance[i - width] = d;
+                queue[tail++] = i - width;
+            }
+            if (i + width < cells.length && distance[i + width] < 0) {
+                distance[i + width] = d;
+                queue[tail++] = i + width;
+            }
+        }
 
+        byte[] result = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + width * y;
+                int h;
+                if (distance[i] < 0) {
+                    h = MAX_HEIGHT;
+                } else if (distance[i] == 0) {
+                    h = 0;
+                } else {
+                    h = (distance[i] + 1) / 2 + (cells[i] == WOODS ? 1 : 0)
+                            + ((x >> 1) + (y >> 1) & 1);
                 }
+                result[i] = (byte)Math.min(MAX_HEIGHT, h);
             }
         }
+        return result;
     }
 }
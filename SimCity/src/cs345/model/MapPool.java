@@ -0,0 +1,136 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A pool of maps generated ahead of time in the background.
+ *
+ * The pool keeps a fixed number of maps for one generator and grid size
+ * on order from a worker thread. take returns the oldest, waiting for it
+ * only if it is not finished yet, and orders a new one to replace it. The
+ * maps are generated one at a time and in order, so a seeded generator
+ * gives the same sequence of maps with or without the pool.
+ *
+ * While the pool is in use, the generator belongs to the worker and must
+ * not be used by any other thread. The pool is turned on by setting the
+ * property cs345opolis.mappool.size to the number of maps to keep.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class MapPool {
+
+    public static final String SIZE_PROP = "cs345opolis.mappool.size";
+
+    private final TerrainGenerator generator;
+    private final MapCache mapCache;
+    private final int width;
+    private final int height;
+    private final ExecutorService worker;
+    private final Deque<CompletableFuture<Terrain>> maps = new ArrayDeque<>();
+    private boolean fresh = true;
+
+    /**
+     * Create a pool and start generating its maps.
+     * @param generator the generator for the maps
+     * @param mapCache the cache to generate the maps through, or null
+     * @param width the width of the maps
+     * @param height the height of the maps
+     * @param size the number of maps to keep ready
+     */
+    MapPool(TerrainGenerator generator, MapCache mapCache, int width, int height, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Map pool size must be positive");
+        }
+        this.generator = generator;
+        this.mapCache = mapCache;
+        this.width = width;
+        this.height = height;
+        this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "map-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int n = 0; n < size; n++) {
+            maps.add(order());
+        }
+    }
+
+    /**
+     * Return the next map, ordering another to take its place.
+     * @return the terrain of the map
+     */
+    Terrain take() {
+        fresh = false;
+        CompletableFuture<Terrain> next = maps.poll();
+        maps.add(order());
+        try {
+            return next.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /* Order a map from the worker. */
+    private CompletableFuture<Terrain> order() {
+        return CompletableFuture.supplyAsync(() -> {
+            Terrain terrain = new Terrain(width, height);
+            if (mapCache != null) {
+                mapCache.generateTerrain(generator, terrain);
+            } else {
+                generator.generateTerrain(terrain);
+            }
+            return terrain;
+        }, worker);
+    }
+
+    /**
+     * Return true if no map has been taken from the pool. The generator is
+     * then as good as new, since its maps are still all to come.
+     * @return true if no map has been taken
+     */
+    boolean isFresh() {
+        return fresh;
+    }
+
+    /**
+     * Return the generator of the maps.
+     * @return the generator
+     */
+    TerrainGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Return true if the pool's maps fit a grid of the given size.
+     * @param width the grid width
+     * @param height the grid height
+     * @return true if the sizes match
+     */
+    boolean fits(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    /**
+     * Stop the pool. Maps not yet started are abandoned; a map being
+     * generated is finished and dropped.
+     */
+    void shutdown() {
+        maps.forEach(map -> map.cancel(false));
+        maps.clear();
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,29 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A flood Command, includes the water level of the flood.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelFloodCommand implements ModelCommand {
+
+    private int level;
+
+    public ModelFloodCommand(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        if (level < 1 || level > Floods.MAX_LEVEL) {
+            throw new ModelCommandException("Flood level must be from 1 to %d", Floods.MAX_LEVEL);
+        }
+        model.getFloods().flood(level);
+    }
+}
@@ -0,0 +1,39 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A newgrid region Command, generates new terrain for a region of the grid.
+ *
+ * Zones, roads and other buildings in the region are kept. If no seed is
+ * given, one is taken from the random number generator of the game.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelNewRegionCommand implements ModelCommand {
+
+    private GridRectangle rect;
+    private Long seed;
+
+    /** Construct a new newgrid region command.
+     *
+     * @param rect the region to be generated
+     * @param seed the seed for the new terrain, or null for a random seed
+     */
+    public ModelNewRegionCommand(GridRectangle rect, Long seed) {
+        this.rect = rect;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        if (rect.w == 0 || rect.h == 0 || !model.getGrid().validRegion(rect)) {
+            throw new ModelCommandException("Cannot generate terrain at %s", rect);
+        }
+        model.regenerateRegion(rect, seed != null ? seed : model.prngNextLong());
+    }
+}
@@ -0,0 +1,60 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.PowerLine;
+import cs345.model.cell.Road;
+
+/**
+ * A power line Command, includes the region for the lines.
+ *
+ * Power lines are built on every buildable cell in the region. Cells in
+ * the region that are roads get power lines along the road.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelPowerLineCommand implements ModelCommand {
+
+    private GridRectangle rect;
+
+    /** Construct a new power line command.
+     *
+     * @param rect the rectangle for the power lines
+     */
+    public ModelPowerLineCommand(GridRectangle rect) {
+        this.rect = rect;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        Grid grid = model.getGrid();
+        if (!grid.validRegion(rect)) {
+            throw new ModelCommandException("Cannot build power lines at %s", rect);
+        }
+        for (int x = rect.x; x < rect.x + rect.w; x++) {
+            for (int y = rect.y; y < rect.y + rect.h; y++) {
+                Cell cell = grid.cellAt(x, y);
+                if (!cell.isBuildable() && cell.getCellType() != CellType.ROAD) {
+                    throw new ModelCommandException("Cannot build power lines at %s", rect);
+                }
+            }
+        }
+
+        for (int x = rect.x; x < rect.x + rect.w; x++) {
+            for (int y = rect.y; y < rect.y + rect.h; y++) {
+                Cell cell = grid.cellAt(x, y);
+                if (cell.getCellType() == CellType.ROAD) {
+                    ((Road)cell).setPowerLine(true);
+                } else {
+                    grid.setCellAt(x, y, new PowerLine(model, new GridLocation(x, y)));
+                }
+            }
+        }
+        model.fireGridChanged(rect);
+    }
+}
@@ -0,0 +1,33 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.PowerPlant;
+
+/**
+ * A power plant Command, includes the center of the plant.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelPowerPlantCommand implements ModelCommand {
+
+    private GridLocation loc;
+
+    public ModelPowerPlantCommand(GridLocation loc) {
+        this.loc = loc;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        // Validate location
+        GridRectangle plantRect = new GridRectangle(loc.x - 1, loc.y - 1, 3, 3);
+        if (!model.isBuildable(plantRect)) {
+            throw new ModelCommandException("Cannot build at %s", loc);
+        }
+        new PowerPlant(model, loc);
+    }
+}
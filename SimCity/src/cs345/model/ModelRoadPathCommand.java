@@ -0,0 +1,59 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.Road;
+
+/**
+ * A road path Command, includes the two end points of the road.
+ *
+ * The route between the end points is found by the model's RoadRouter.
+ * Roads are built on every cell of the route that is not already a road
+ * and a single grid change covering the whole route is reported.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelRoadPathCommand implements ModelCommand {
+
+    private GridLocation from;
+    private GridLocation to;
+
+    /** Construct a new road path command.
+     *
+     * @param from the start of the road
+     * @param to the end of the road
+     */
+    public ModelRoadPathCommand(GridLocation from, GridLocation to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        int[] route = model.getRoadRouter().findRoute(from, to);
+        if (route == null) {
+            throw new ModelCommandException("No road route from %s to %s", from, to);
+        }
+
+        Grid grid = model.getGrid();
+        int width = grid.getWidth();
+        int minX = from.x, maxX = from.x, minY = from.y, maxY = from.y;
+        for (int index : route) {
+            int x = index % width;
+            int y = index / width;
+            if (grid.cellAt(x, y).getCellType() != CellType.ROAD) {
+                grid.setCellAt(x, y, new Road(model, new GridLocation(x, y)));
+            }
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        model.fireGridChanged(new GridRectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+    }
+}
@@ -0,0 +1,44 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.FireStation;
+import cs345.model.cell.PoliceStation;
+
+/**
+ * A service station Command, includes the service and the center of the
+ * station.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelServiceCommand implements ModelCommand {
+
+    private ServiceCoverage.Service service;
+    private GridLocation loc;
+
+    public ModelServiceCommand(ServiceCoverage.Service service, GridLocation loc) {
+        this.service = service;
+        this.loc = loc;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        // Validate location
+        GridRectangle stationRect = new GridRectangle(loc.x - 1, loc.y - 1, 3, 3);
+        if (!model.isBuildable(stationRect)) {
+            throw new ModelCommandException("Cannot build at %s", loc);
+        }
+        switch (service) {
+            case POLICE:
+                new PoliceStation(model, loc);
+                break;
+            case FIRE:
+                new FireStation(model, loc);
+                break;
+        }
+    }
+}
@@ -6,26 +6,50 @@
 
 package cs345.model;
 
-import cs345.model.cell.Industrial;
-import cs345.model.cell.Residential;
+import cs345.model.cell.ZoneType;
 
 /**
  * A zone Command, includes the type of zone to be created.
  *
+ * A command made with nearest builds the zone at the site nearest the
+ * given location, as found by the model's SiteIndex, instead of exactly
+ * at the location.
+ *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
 public class ModelZoneCommand implements ModelCommand {
 
     private String zoneType;
     private GridLocation loc;
+    private boolean nearest = false;
 
     public ModelZoneCommand(String zoneType, GridLocation loc) {
         this.zoneType = zoneType;
         this.loc = loc;
     }
 
+    /**
+     * Return a command that builds a zone at the site nearest loc.
+     * @param zoneType the type of zone
+     * @param loc the location to build near
+     * @return the zone command
+     */
+    public static ModelZoneCommand nearest(String zoneType, GridLocation loc) {
+        ModelZoneCommand command = new ModelZoneCommand(zoneType, loc);
+        command.nearest = true;
+        return command;
+    }
+
     @Override
     public void run(Cs345Opolis model) throws ModelCommandException {
+        GridLocation loc = this.loc;
+        if (nearest) {
+            GridLocation[] sites = model.getSiteIndex().findNearest(loc, 1);
+            if (sites.length == 0) {
+                throw new ModelCommandException("No site for a zone near %s", loc);
+            }
+            loc = sites[0];
+        }
         int col = loc.x;
         int row = loc.y;
 
@@ -35,15 +59,10 @@ public class ModelZoneCommand implements ModelCommand {
             throw new ModelCommandException("Cannot build at %s", loc);
         }
 
-        switch (zoneType) {
-            case "residential":
-                new Residential(model, loc);
-                break;
-            case "industrial":
-                new Industrial(model, loc);
-                break;    
-            default:
-                throw new AssertionError("Unknown zone type " + zoneType);
+        ZoneType type = ZoneType.forName(zoneType);
+        if (type == null) {
+            throw new AssertionError("Unknown zone type " + zoneType);
         }
+        type.build(model, loc, true);
     }
 }
\ No newline at end of file
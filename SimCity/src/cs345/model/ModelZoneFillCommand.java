@@ -0,0 +1,109 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.Zone;
+import cs345.model.cell.ZoneType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A zone fill Command, includes the type of zone and the region to fill.
+ *
+ * The region is tiled with as many 3x3 zones as fit on its buildable cells.
+ * Zones are placed row by row from the upper left corner of the region; a
+ * zone is placed wherever all nine of its cells are buildable and not
+ * already used by another zone of the fill. The buildable cells are read
+ * from the grid once, all the new zones are scheduled with the simulator
+ * together, and a single grid change covering the new zones is reported.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ModelZoneFillCommand implements ModelCommand {
+
+    private String zoneType;
+    private GridRectangle rect;
+
+    /** Construct a new zone fill command.
+     *
+     * @param zoneType the name of the type of zone, as for ZoneType.forName
+     * @param rect the region to be filled
+     */
+    public ModelZoneFillCommand(String zoneType, GridRectangle rect) {
+        this.zoneType = zoneType;
+        this.rect = rect;
+    }
+
+    @Override
+    public void run(Cs345Opolis model) throws ModelCommandException {
+        ZoneType type = ZoneType.forName(zoneType);
+        if (type == null) {
+            throw new AssertionError("Unknown zone type " + zoneType);
+        }
+        Grid grid = model.getGrid();
+        if (!grid.validRegion(rect)) {
+            throw new ModelCommandException("Cannot build at %s", rect);
+        }
+
+        // Find the buildable cells in the region
+        int w = rect.w;
+        int h = rect.h;
+        boolean[] free = new boolean[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                free[x + w * y] = grid.cellAt(rect.x + x, rect.y + y).isBuildable();
+            }
+        }
+
+        // Place zones wherever a 3x3 block of free cells is found
+        List<Zone> zones = new ArrayList<>();
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int y = 0; y + 3 <= h; y++) {
+            int x = 0;
+            while (x + 3 <= w) {
+                int blocked = lastBlockedColumn(free, w, x, y);
+                if (blocked >= 0) {
+                    x = blocked + 1; // No block can include the blocked column
+                    continue;
+                }
+                for (int dy = 0; dy < 3; dy++) {
+                    for (int dx = 0; dx < 3; dx++) {
+                        free[x + dx + w * (y + dy)] = false;
+                    }
+                }
+                zones.add(type.build(model, new GridLocation(rect.x + x + 1, rect.y + y + 1), false));
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x + 2);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y + 2);
+                x += 3;
+            }
+        }
+        if (zones.isEmpty()) {
+            throw new ModelCommandException("No room for %s zones at %s", zoneType, rect);
+        }
+
+        model.addActions(model.getCurrentTime().nextStep(1), zones);
+        model.fireGridChanged(new GridRectangle(rect.x + minX, rect.y + minY,
+                maxX - minX + 1, maxY - minY + 1));
+    }
+
+    /* Return the rightmost column of the 3x3 block at x, y that has a cell
+     * that is not free, or -1 if every cell of the block is free.
+     */
+    private static int lastBlockedColumn(boolean[] free, int w, int x, int y) {
+        for (int dx = 2; dx >= 0; dx--) {
+            int i = x + dx + w * y;
+            if (!free[i] || !free[i + w] || !free[i + 2 * w]) {
+                return x + dx;
+            }
+        }
+        return -1;
+    }
+}
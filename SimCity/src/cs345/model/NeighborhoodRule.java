@@ -0,0 +1,35 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A cellular automaton rule applied 64 cells at a time by BitGrid.step.
+ *
+ * Each argument holds one bit for each of 64 horizontally adjacent cells:
+ * the cells themselves and their left, right, upper and lower neighbors.
+ * Neighbors outside the grid are zero. The rule combines them with bitwise
+ * operations and returns the new value of the 64 cells. For example, the
+ * rule that keeps a cell only if it has a neighbor on the left or right and
+ * a neighbor above or below is
+ *     (center, left, right, up, down) -> center & (left | right) & (up | down)
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+@FunctionalInterface
+public interface NeighborhoodRule {
+
+    /**
+     * Return the new values of 64 cells.
+     * @param center the current values of the cells
+     * @param left the values of the cells to their left
+     * @param right the values of the cells to their right
+     * @param up the values of the cells above them
+     * @param down the values of the cells below them
+     * @return the new values of the cells
+     */
+    long apply(long center, long left, long right, long up, long down);
+}
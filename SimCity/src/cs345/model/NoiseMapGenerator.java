@@ -0,0 +1,271 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import static cs345.model.Terrain.*;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generator for new Maps using coherent noise.
+ *
+ * The terrain of each cell is a pure function of the seed and the cell's
+ * coordinates, so any part of an unbounded map can be generated on demand,
+ * in any order and in parallel, and generated again later without being
+ * stored. Three independent fields of simplex noise, each summed over
+ * several octaves, are computed for a cell:
+ *   elevation -- cells below LAKE_LEVEL are lakes (river)
+ *   channel -- cells where the channel field is close to zero are rivers,
+ *              which gives long winding bands of water
+ *   moisture -- cells above WOODS_LEVEL are woods
+ * Every other cell is dirt.
+ *
+ * The first map uses the seed property, or a random seed if it is unset.
+ * Each later map uses the next seed of a SplitMixRandom sequence started
+ * from that seed, so a new map differs from the last one, as with the
+ * classic generator, and the run of maps for a seed is always the same.
+ *
+ * The tree, curve and lake level properties of the classic generator are
+ * honored only to the extent that a level of zero turns off woods, rivers
+ * or lakes respectively. The island setting is not used.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class NoiseMapGenerator implements TerrainGenerator {
+
+    public static final String NOISE_SCALE_PROP = "cs345opolis.mapgenerator.noiseScale";
+
+    /* Thresholds for the terrain. */
+    private static final double LAKE_LEVEL = -0.42;
+    private static final double RIVER_WIDTH = 0.035;
+    private static final double WOODS_LEVEL = 0.12;
+
+    /* Number of octaves in each noise field. */
+    private static final int OCTAVES = 4;
+
+    /* Channels mixed into the seed for the separate noise fields. */
+    private static final long ELEVATION = 1;
+    private static final long CHANNEL = 2;
+    private static final long MOISTURE = 3;
+
+    private final double scale; // Size in cells of the largest features
+    private final int treeLevel;
+    private final int curveLevel;
+    private final int lakeLevel;
+    private final String prngSeed; // The seed property, null if unset
+    private long seed; // The seed of the next map
+    private final SplitMixRandom seeds; // The seeds of the maps after it
+
+    /**
+     * Create a new NoiseMapGenerator using the given properties.
+     * @param props the properties for the game
+     */
+    public NoiseMapGenerator(Properties props) {
+        scale = Double.parseDouble(props.getProperty(NOISE_SCALE_PROP, "40"));
+        treeLevel = Integer.parseInt(props.getProperty(MapGenerator.TREE_LEVEL_PROP, "-1"));
+        curveLevel = Integer.parseInt(props.getProperty(MapGenerator.CURVE_LEVEL_PROP, "-1"));
+        lakeLevel = Integer.parseInt(props.getProperty(MapGenerator.LAKE_LEVEL_PROP, "-1"));
+        prngSeed = props.getProperty(MapGenerator.RANDOM_SEED_PROP);
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Noise scale must be positive");
+        }
+        seed = prngSeed != null ? Long.parseLong(prngSeed) : ThreadLocalRandom.current().nextLong();
+        seeds = new SplitMixRandom(seed);
+    }
+
+    @Override public boolean sameProperties(Properties props) {
+        String prngSeedProp = props.getProperty(MapGenerator.RANDOM_SEED_PROP);
+        return TerrainGenerator.typeOf(props) == Type.NOISE &&
+                scale == Double.parseDouble(props.getProperty(NOISE_SCALE_PROP, "40")) &&
+                treeLevel == Integer.parseInt(props.getProperty(MapGenerator.TREE_LEVEL_PROP, "-1")) &&
+                curveLevel == Integer.parseInt(props.getProperty(MapGenerator.CURVE_LEVEL_PROP, "-1")) &&
+                lakeLevel == Integer.parseInt(props.getProperty(MapGenerator.LAKE_LEVEL_PROP, "-1")) &&
+                ((prngSeed != null && prngSeed.equals(prngSeedProp)) ||
+                 (prngSeed == null && prngSeedProp == null));
+    }
+
+    /**
+     * Return the seed of the next map.
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set the seed of the next map, starting the sequence of seeds again
+     * from it.
+     * @param seed the new seed
+     */
+    public void setRandomSeed(long seed) {
+        this.seed = seed;
+        seeds.setSeed(seed);
+    }
+
+    /**
+     * Return the key for the next map. The map depends only on the settings
+     * and the seed, so it is always reproducible. The state of the sequence
+     * of seeds is part of the key, so the state restored with a map from
+     * the cache is the one generating it would leave.
+     * @return the key
+     */
+    @Override public String cacheKey() {
+        return "NOISE noiseScale=" + scale + " treeLevel=" + treeLevel +
+                " curveLevel=" + curveLevel + " lakeLevel=" + lakeLevel + " seed=" + seed +
+                " seeds=" + Arrays.toString(seeds.getState());
+    }
+
+    @Override public void generateTerrain(Terrain terrain) {
+        generateChunk(terrain, 0, 0);
+        seed = seeds.nextLong();
+    }
+
+    @Override public long[] getState() {
+        long[] sequence = seeds.getState();
+        return new long[] { seed, sequence[0], sequence[1] };
+    }
+
+    @Override public void setState(long[] state) {
+        seed = state[0];
+        seeds.setState(new long[] { state[1], state[2] });
+    }
+
+    /**
+     * Fill the given terrain with the part of the next map whose upper left
+     * corner is at originX, originY. The rows of the chunk are generated in
+     * parallel.
+     * @param chunk the terrain to be filled
+     * @param originX the map x coordinate of the chunk's left edge
+     * @param originY the map y coordinate of the chunk's top edge
+     */
+    public void generateChunk(Terrain chunk, long originX, long originY) {
+        IntStream.range(0, chunk.getHeight()).parallel().forEach(y -> {
+            for (int x = 0; x < chunk.getWidth(); x++) {
+                chunk.set(x, y, terrainAt(originX + x, originY + y));
+            }
+        });
+    }
+
+    /**
+     * Fill the region with the part of the map for the given seed at the
+     * region's location.
+     * @param region the terrain to be filled
+     * @param x the map x coordinate of the left edge of the region
+     * @param y the map y coordinate of the top edge of the region
+     * @param seed the seed for the new terrain
+     */
+    @Override public void generateRegion(Terrain region, int x, int y, long seed) {
+        for (int row = 0; row < region.getHeight(); row++) {
+            for (int col = 0; col < region.getWidth(); col++) {
+                region.set(col, row, terrainAt(seed, x + col, y + row));
+            }
+        }
+    }
+
+    /**
+     * Return the terrain code for the given map location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the terrain code, one of Terrain.DIRT, RIVER or WOODS
+     */
+    public byte terrainAt(long x, long y) {
+        return terrainAt(seed, x, y);
+    }
+
+    /* The terrain code for the given location of the map with the given
+     * seed.
+     */
+    private byte terrainAt(long seed, long x, long y) {
+        double fx = x / scale;
+        double fy = y / scale;
+        if (lakeLevel != 0 && fractal(seed, ELEVATION, fx, fy) < LAKE_LEVEL) {
+            return RIVER;
+        }
+        if (curveLevel != 0
+                && Math.abs(fractal(seed, CHANNEL, fx / 4, fy / 4)) < RIVER_WIDTH) {
+            return RIVER;
+        }
+        if (treeLevel != 0 && fractal(seed, MOISTURE, fx, fy) > WOODS_LEVEL) {
+            return WOODS;
+        }
+        return DIRT;
+    }
+
+    /* Sum of OCTAVES octaves of simplex noise, each at twice the frequency
+     * and half the amplitude of the one before. The result is scaled back
+     * to about -1 to 1.
+     */
+    private static double fractal(long seed, long channel, double x, double y) {
+        double sum = 0;
+        double amplitude = 1;
+        double total = 0;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            sum += amplitude * simplex(seed + channel * 0x632BE59BD9B4E019L + octave, x, y);
+            total += amplitude;
+            amplitude *= 0.5;
+            x *= 2;
+            y *= 2;
+        }
+        return sum / total;
+    }
+
+    /* Skewing factors for two dimensional simplex noise. */
+    private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+    private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+
+    /* Gradient directions, indexed by the low three bits of a hash. */
+    private static final double[] GRAD_X = { 1, -1, 1, -1, 1, -1, 0, 0 };
+    private static final double[] GRAD_Y = { 1, 1, -1, -1, 0, 0, 1, -1 };
+
+    /* Two dimensional simplex noise in about -1 to 1. The gradient at each
+     * lattice point comes from a hash of the seed and the point, so no
+     * permutation table is needed and the lattice is unbounded.
+     */
+    private static double simplex(long seed, double x, double y) {
+        // Find the simplex cell containing the point
+        double s = (x + y) * F2;
+        long i = (long)Math.floor(x + s);
+        long j = (long)Math.floor(y + s);
+        double t = (i + j) * G2;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+        int i1 = x0 > y0 ? 1 : 0;
+        int j1 = 1 - i1;
+        double x1 = x0 - i1 + G2;
+        double y1 = y0 - j1 + G2;
+        double x2 = x0 - 1.0 + 2.0 * G2;
+        double y2 = y0 - 1.0 + 2.0 * G2;
+
+        // Add the contributions of the three corners
+        double n = corner(seed, i, j, x0, y0)
+                + corner(seed, i + i1, j + j1, x1, y1)
+                + corner(seed, i + 1, j + 1, x2, y2);
+        return 70.0 * n;
+    }
+
+    /* Contribution of one corner of a simplex. */
+    private static double corner(long seed, long i, long j, double x, double y) {
+        double t = 0.5 - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        int g = (int)hash(seed, i, j) & 7;
+        t *= t;
+        return t * t * (GRAD_X[g] * x + GRAD_Y[g] * y);
+    }
+
+    /* Hash of a seed and a lattice point. */
+    private static long hash(long seed, long i, long j) {
+        long z = seed ^ (i * 0x9E3779B97F4A7C15L) ^ (j * 0xC2B2AE3D27D4EB4FL);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,252 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The pollution over the grid.
+ *
+ * Industrial zones emit pollution in proportion to their population: each
+ * cell of the zone adds EMISSION for each industry every month. Once a
+ * month the emissions are added to the field and the field is spread with
+ * a separable 5 cell binomial blur, first along the rows and then along the
+ * columns, and then multiplied by the retention of each cell. Woods absorb
+ * pollution, so they keep less of it, and rivers carry it, so they keep
+ * more. Pollution spread off the edge of the grid is lost.
+ *
+ * The field is kept in float arrays. The blur is split into bands of rows
+ * that run in parallel. The column pass goes along the rows of a band in
+ * blocks of columns, so the five rows it reads stay in the cache.
+ *
+ * The emissions are kept current by the model from the changes in the
+ * census. The retention of each cell is kept current by listening for
+ * changes to the grid.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class PollutionField implements Cs345Opolis.ModelListener, SimulatorAction {
+
+    /** Pollution emitted by each cell of a zone for each industry. */
+    public static final float EMISSION = 1.0f;
+
+    /** Pollution above which residential zones do not grow. */
+    public static final float HEAVY = 12.0f;
+
+    /* The fraction of the pollution a cell keeps each month. */
+    private static final float RETAIN_WOODS = 0.6f;
+    private static final float RETAIN_RIVER = 0.97f;
+    private static final float RETAIN_OTHER = 0.85f;
+
+    private static final int BAND_ROWS = 64;
+    private static final int BLOCK_COLUMNS = 1024;
+
+    private final Cs345Opolis model;
+
+    private int width = 0;
+    private int height = 0;
+    private float[] field = new float[0];
+    private float[] emission = new float[0];
+    private float[] retention = new float[0];
+    private float[] rows = new float[0]; // The field after the row pass
+    private float[] next = new float[0];
+
+    /**
+     * Construct the pollution field for the given model. The object must be
+     * added as a listener on the model and scheduled monthly to be kept
+     * current.
+     * @param model the model
+     */
+    PollutionField(Cs345Opolis model) {
+        this.model = model;
+    }
+
+    /**
+     * Return the pollution at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the pollution, 0 outside the grid
+     */
+    public float at(int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+        return field[x + width * y];
+    }
+
+    /* The field, indexed by x + width * y. Only valid until the next step. */
+    float[] field() {
+        checkSize();
+        return field;
+    }
+
+    /**
+     * Add a change in the population of an industrial zone to the
+     * emissions.
+     * @param center the center of the zone
+     * @param delta the change in the number of industries
+     */
+    void emit(GridLocation center, int delta) {
+        checkSize();
+        for (int y = center.y - 1; y <= center.y + 1; y++) {
+            for (int x = center.x - 1; x <= center.x + 1; x++) {
+                if (x >= 0 && x < width && y >= 0 && y < height) {
+                    emission[x + width * y] += delta * EMISSION;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all the pollution, as for a new map.
+     */
+    void clear() {
+        Arrays.fill(field, 0);
+    }
+
+    /**
+     * Update the field for a month.
+     * @return the steps to the next update
+     */
+    @Override public int doAction() {
+        step();
+        return SimulatorTime.MONTH * Simulator.STEPS_PER_PERIOD;
+    }
+
+    /**
+     * Add a month of emissions to the field and spread it.
+     */
+    public void step() {
+        checkSize();
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int end = Math.min(height, (band + 1) * BAND_ROWS);
+            for (int y = band * BAND_ROWS; y < end; y++) {
+                blurRow(y * width);
+            }
+        });
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int end = Math.min(height, (band + 1) * BAND_ROWS);
+            for (int x0 = 0; x0 < width; x0 += BLOCK_COLUMNS) {
+                int x1 = Math.min(width, x0 + BLOCK_COLUMNS);
+                for (int y = band * BAND_ROWS; y < end; y++) {
+                    blurColumns(y, x0, x1);
+                }
+            }
+        });
+        float[] old = field;
+        field = next;
+        next = old;
+    }
+
+    /* The row pass for the row starting at index start, including the
+     * emissions.
+     */
+    private void blurRow(int start) {
+        float[] f = field;
+        float[] e = emission;
+        float[] r = rows;
+        float m2 = 0;
+        float m1 = 0;
+        float c = f[start] + e[start];
+        float p1 = width > 1 ? f[start + 1] + e[start + 1] : 0;
+        int end = start + width;
+        for (int i = start; i < end; i++) {
+            float p2 = i + 2 < end ? f[i + 2] + e[i + 2] : 0;
+            r[i] = (m2 + 4 * (m1 + p1) + 6 * c + p2) * (1.0f / 16);
+            m2 = m1;
+            m1 = c;
+            c = p1;
+            p1 = p2;
+        }
+    }
+
+    /* The column pass for row y, columns x0 to x1 (exclusive). */
+    private void blurColumns(int y, int x0, int x1) {
+        float[] r = rows;
+        float[] n = next;
+        float[] keep = retention;
+        int row = y * width;
+        int up2 = y >= 2 ? row - 2 * width : -1;
+        int up1 = y >= 1 ? row - width : -1;
+        int down1 = y + 1 < height ? row + width : -1;
+        int down2 = y + 2 < height ? row + 2 * width : -1;
+        if (up2 >= 0 && down2 >= 0) {
+            // Rows away from the top and bottom edges
+            for (int x = x0; x < x1; x++) {
+                float sum = r[up2 + x] + 4 * (r[up1 + x] + r[down1 + x]) + 6 * r[row + x]
+                        + r[down2 + x];
+                n[row + x] = sum * (1.0f / 16) * keep[row + x];
+            }
+            return;
+        }
+        for (int x = x0; x < x1; x++) {
+            float sum = 6 * r[row + x];
+            if (up2 >= 0)
+                sum += r[up2 + x];
+            if (up1 >= 0)
+                sum += 4 * r[up1 + x];
+            if (down1 >= 0)
+                sum += 4 * r[down1 + x];
+            if (down2 >= 0)
+                sum += r[down2 + x];
+            n[row + x] = sum * (1.0f / 16) * keep[row + x];
+        }
+    }
+
+    /* The retention for a type of cell. */
+    private static float retention(CellType type) {
+        switch (type) {
+            case WOODS:
+                return RETAIN_WOODS;
+            case RIVER:
+                return RETAIN_RIVER;
+            default:
+                return RETAIN_OTHER;
+        }
+    }
+
+    /**
+     * Update the retention of the changed cells.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                retention[x + width * y] = retention(grid.cellAt(x, y).getCellType());
+            }
+        }
+    }
+
+    /* Make sure the arrays match the grid. */
+    private void checkSize() {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+    }
+
+    /* Allocate the storage for a new grid size. */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        int size = width * height;
+        field = new float[size];
+        emission = new float[size];
+        retention = new float[size];
+        rows = new float[size];
+        next = new float[size];
+    }
+}
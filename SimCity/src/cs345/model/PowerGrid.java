@@ -0,0 +1,262 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Tracks which cells of the grid receive power.
+ *
+ * Power flows from power sources (power plants) through conducting cells
+ * (power lines, zones and roads with power lines) that are horizontal or
+ * vertical neighbors. A cell is powered if it is connected to a source
+ * through conducting cells. The powered status of each cell is kept in a
+ * bitset.
+ *
+ * When the whole grid changes the powered cells are recomputed with a
+ * single breadth first search from all sources. When part of the grid
+ * changes only the affected component is updated: the powered component
+ * around a removed conductor is cleared and power is propagated again
+ * from the sources that were in it, and power is propagated out from new
+ * conductors that touch a powered cell.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class PowerGrid implements Cs345Opolis.ModelListener {
+
+    /** Property name for whether zones need power to grow. */
+    public static final String POWER_REQUIRED_PROP = "cs345opolis.power.required";
+
+    /* Kinds of cells. */
+    private static final byte INSULATOR = 0;
+    private static final byte CONDUCTOR = 1;
+    private static final byte SOURCE = 2;
+
+    private final Cs345Opolis model;
+    private final boolean required;
+
+    private int width = 0;
+    private int height = 0;
+    private byte[] kind = new byte[0]; // Kind of each cell
+    private long[] powered = new long[0]; // Powered bit for each cell
+
+    /* Working storage for the searches. */
+    private int[] queue = new int[0];
+    private int[] sources = new int[16];
+    private int sourceCount = 0;
+
+    /**
+     * Construct the power grid for the given model. The object must be
+     * added as a listener on the model to be kept current.
+     * @param model the model whose grid is powered
+     * @param props the properties for the game
+     */
+    PowerGrid(Cs345Opolis model, Properties props) {
+        this.model = model;
+        this.required = Boolean.parseBoolean(props.getProperty(POWER_REQUIRED_PROP, "false"));
+    }
+
+    /**
+     * Return true if zones need power to grow.
+     * @return true if power is required
+     */
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * Return true if the cell at the given location is powered.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the cell is powered
+     */
+    public boolean isPowered(int x, int y) {
+        int i = x + width * y;
+        return (powered[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Update the powered cells for the changed region of the grid.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height
+                || (rect.w == width && rect.h == height)) {
+            recompute(grid);
+        } else {
+            update(grid, rect);
+        }
+    }
+
+    /* Kind of a cell. */
+    private static byte kindOf(Cell cell) {
+        if (cell.isPowerSource())
+            return SOURCE;
+        return cell.isConductor() ? CONDUCTOR : INSULATOR;
+    }
+
+    /* Recompute the powered cells for the whole grid. */
+    private void recompute(Grid grid) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        int size = width * height;
+        if (kind.length != size) {
+            kind = new byte[size];
+            powered = new long[(size + 63) >>> 6];
+            queue = new int[size];
+        } else {
+            Arrays.fill(powered, 0);
+        }
+        sourceCount = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + width * y;
+                kind[i] = kindOf(grid.cellAt(x, y));
+                if (kind[i] == SOURCE) {
+                    addSource(i);
+                }
+            }
+        }
+        propagate();
+    }
+
+    /* Update the powered cells after the cells in rect changed. */
+    private void update(Grid grid, GridRectangle rect) {
+        sourceCount = 0;
+
+        // Clear the powered components around cells that lost conduction
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                int i = x + width * y;
+                byte newKind = kindOf(grid.cellAt(x, y));
+                if (newKind < kind[i] && get(i)) {
+                    clearComponent(i);
+                }
+                kind[i] = newKind;
+            }
+        }
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                int i = x + width * y;
+                if (kind[i] == INSULATOR) {
+                    clear(i);
+                }
+            }
+        }
+
+        // Propagate from sources and from conductors touching power
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                int i = x + width * y;
+                if (kind[i] == SOURCE
+                        || (kind[i] == CONDUCTOR && !get(i) && touchesPower(i))) {
+                    addSource(i);
+                }
+            }
+        }
+        propagate();
+    }
+
+    /* Return true if any neighbor of cell i is powered. */
+    private boolean touchesPower(int i) {
+        int x = i % width;
+        int y = i / width;
+        return (x > 0 && get(i - 1)) || (x < width - 1 && get(i + 1))
+                || (y > 0 && get(i - width)) || (y < height - 1 && get(i + width));
+    }
+
+    /* Clear the powered component containing cell i, remembering the
+     * sources found in it so power can be propagated from them again.
+     */
+    private void clearComponent(int start) {
+        int head = 0;
+        int tail = 0;
+        clear(start);
+        queue[tail++] = start;
+        while (head < tail) {
+            int i = queue[head++];
+            if (kind[i] == SOURCE) {
+                addSource(i);
+            }
+            int x = i % width;
+            int y = i / width;
+            if (x > 0 && get(i - 1)) {
+                clear(i - 1);
+                queue[tail++] = i - 1;
+            }
+            if (x < width - 1 && get(i + 1)) {
+                clear(i + 1);
+                queue[tail++] = i + 1;
+            }
+            if (y > 0 && get(i - width)) {
+                clear(i - width);
+                queue[tail++] = i - width;
+            }
+            if (y < height - 1 && get(i + width)) {
+                clear(i + width);
+                queue[tail++] = i + width;
+            }
+        }
+    }
+
+    /* Propagate power from the remembered sources through conductors. */
+    private void propagate() {
+        int head = 0;
+        int tail = 0;
+        for (int s = 0; s < sourceCount; s++) {
+            int i = sources[s];
+            if (kind[i] != INSULATOR && !get(i)) {
+                set(i);
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int i = queue[head++];
+            int x = i % width;
+            int y = i / width;
+            if (x > 0 && kind[i - 1] != INSULATOR && !get(i - 1)) {
+                set(i - 1);
+                queue[tail++] = i - 1;
+            }
+            if (x < width - 1 && kind[i + 1] != INSULATOR && !get(i + 1)) {
+                set(i + 1);
+                queue[tail++] = i + 1;
+            }
+            if (y > 0 && kind[i - width] != INSULATOR && !get(i - width)) {
+                set(i - width);
+                queue[tail++] = i - width;
+            }
+            if (y < height - 1 && kind[i + width] != INSULATOR && !get(i + width)) {
+                set(i + width);
+                queue[tail++] = i + width;
+            }
+        }
+        sourceCount = 0;
+    }
+
+    /* Remember a cell from which power is to be propagated. */
+    private void addSource(int i) {
+        if (sourceCount == sources.length) {
+            sources = Arrays.copyOf(sources, 2 * sourceCount);
+        }
+        sources[sourceCount++] = i;
+    }
+
+    private boolean get(int i) {
+        return (powered[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void set(int i) {
+        powered[i >>> 6] |= 1L << i;
+    }
+
+    private void clear(int i) {
+        powered[i >>> 6] &= ~(1L << i);
+    }
+}
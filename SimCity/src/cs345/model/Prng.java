@@ -0,0 +1,155 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A pseudo random number generator for the model and the map generators.
+ *
+ * The kind of generator is chosen by the property cs345opolis.prng:
+ *   RANDOM -- the algorithm of java.util.Random, giving exactly the numbers
+ *             a Random with the same seed gives (the default)
+ *   SPLITMIX -- the SplitMix64 algorithm of java.util.SplittableRandom
+ *   XOSHIRO -- the xoshiro256** algorithm
+ * None of the implementations are synchronized, so a generator must not be
+ * shared by threads. A parallel task should use its own generator, either
+ * one made by split or one seeded from the task.
+ *
+ * The state of a generator can be saved and restored, which lets the map
+ * cache leave a generator as if it had generated a cached map.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public interface Prng {
+
+    String TYPE_PROP = "cs345opolis.prng";
+
+    /**
+     * The kinds of generator.
+     */
+    enum Type {
+        RANDOM,
+        SPLITMIX,
+        XOSHIRO
+    }
+
+    /**
+     * Return the kind of generator selected by the given properties.
+     * @param props the properties for the game
+     * @return the generator type
+     */
+    static Type typeOf(Properties props) {
+        return Type.valueOf(props.getProperty(TYPE_PROP, "RANDOM"));
+    }
+
+    /**
+     * Create a generator of the given kind with the given seed.
+     * @param type the kind of generator
+     * @param seed the seed
+     * @return the new generator
+     */
+    static Prng newPrng(Type type, long seed) {
+        switch (type) {
+            case SPLITMIX:
+                return new SplitMixRandom(seed);
+            case XOSHIRO:
+                return new XoshiroRandom(seed);
+            case RANDOM:
+            default:
+                return new LcgRandom(seed);
+        }
+    }
+
+    /**
+     * Create a generator of the given kind with an unpredictable seed.
+     * @param type the kind of generator
+     * @return the new generator
+     */
+    static Prng newPrng(Type type) {
+        return newPrng(type, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Return the next 64 random bits.
+     * @return a random long
+     */
+    long nextLong();
+
+    /**
+     * Return the next 32 random bits.
+     * @return a random int
+     */
+    default int nextInt() {
+        return (int)(nextLong() >>> 32);
+    }
+
+    /**
+     * Return a random int from 0 up to but not including bound. Every value
+     * is equally likely.
+     * @param bound the upper bound, which must be positive
+     * @return a random int in [0, bound)
+     */
+    default int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        // Lemire's multiply and reject method
+        long m = (nextInt() & 0xFFFFFFFFL) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextInt() & 0xFFFFFFFFL) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int)(m >>> 32);
+    }
+
+    /**
+     * Return a random double from 0 up to but not including 1.
+     * @return a random double in [0, 1)
+     */
+    default double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Return a random boolean.
+     * @return true or false with equal probability
+     */
+    default boolean nextBoolean() {
+        return nextInt() < 0;
+    }
+
+    /**
+     * Set the seed, as if the generator had been created with it.
+     * @param seed the seed
+     */
+    void setSeed(long seed);
+
+    /**
+     * Return a new generator of the same kind whose numbers are independent
+     * of the numbers this one gives afterwards. This generator advances.
+     * @return the new generator
+     */
+    Prng split();
+
+    /**
+     * Return the current state of the generator.
+     * @return the state
+     */
+    long[] getState();
+
+    /**
+     * Restore a state returned by getState of a generator of this kind.
+     * @param state the state
+     */
+    void setState(long[] state);
+}
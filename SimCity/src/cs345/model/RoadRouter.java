@@ -0,0 +1,258 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+
+import java.util.Arrays;
+
+/**
+ * Finds the cheapest buildable route for a road between two grid locations.
+ *
+ * The router keeps a per-cell step cost in a byte array. The costs are kept
+ * current by listening for grid changes, so a search never has to look at
+ * Cell objects. Existing roads are cheapest, dirt costs more and woods
+ * more still. River, Residential and Industrial cells (and any other cell
+ * that a road cannot be built on) are impassable.
+ *
+ * The search is an A* search bounded to the bounding box of the two end
+ * points grown by SEARCH_MARGIN cells. All working storage (the scores,
+ * the back links and the binary heap used as the open set) is allocated
+ * once per grid size and reused between searches. Visited cells are
+ * recognized with a generation stamp, so no array needs to be cleared
+ * between searches. This keeps a search fast enough to be run on every
+ * mouse movement while a road is being dragged.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class RoadRouter implements Cs345Opolis.ModelListener {
+
+    /** Number of cells the search may stray outside the end point box. */
+    public static final int SEARCH_MARGIN = 32;
+
+    /* Step costs. A cost of zero marks an impassable cell. */
+    private static final byte IMPASSABLE = 0;
+    private static final byte ROAD_COST = 1;
+    private static final byte DIRT_COST = 3;
+    private static final byte WOODS_COST = 4;
+
+    private final Cs345Opolis model;
+
+    private int width = 0;
+    private int height = 0;
+
+    private byte[] cost = new byte[0]; // Step cost to enter each cell
+    private int[] gScore = new int[0]; // Best known cost from the start
+    private int[] cameFrom = new int[0]; // Back link for the best path
+    private int[] seen = new int[0]; // Generation in which gScore was set
+    private int[] closed = new int[0]; // Generation in which the cell closed
+    private int generation = 0;
+
+    /* The open set, a binary min-heap of (key, cell) pairs. Stale entries
+     * are skipped when popped instead of being removed.
+     */
+    private int[] heapKeys = new int[256];
+    private int[] heapCells = new int[256];
+    private int heapSize = 0;
+
+    /**
+     * Construct a router for the given model. The router must be added as
+     * a listener on the model to keep its costs current.
+     * @param model the model whose grid is searched
+     */
+    RoadRouter(Cs345Opolis model) {
+        this.model = model;
+    }
+
+    /**
+     * Update the step costs for the changed region of the grid.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                cost[x + width * y] = stepCost(grid.cellAt(x, y).getCellType());
+            }
+        }
+    }
+
+    /* Step cost for entering a cell of the given type. */
+    private static byte stepCost(CellType type) {
+        switch (type) {
+            case ROAD:
+                return ROAD_COST;
+            case DIRT:
+                return DIRT_COST;
+            case WOODS:
+                return WOODS_COST;
+            default:
+                return IMPASSABLE;
+        }
+    }
+
+    /* Allocate the working storage for a new grid size. */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        int size = width * height;
+        cost = new byte[size];
+        gScore = new int[size];
+        cameFrom = new int[size];
+        seen = new int[size];
+        closed = new int[size];
+        generation = 0;
+    }
+
+    /**
+     * Find the cheapest route from one location to another.
+     *
+     * The route is returned as an array of cell indices (x + width * y),
+     * starting with from and ending with to. Consecutive cells in the route
+     * are horizontal or vertical neighbors.
+     *
+     * @param from the start of the route
+     * @param to the end of the route
+     * @return the route or null if there is no buildable route
+     */
+    public int[] findRoute(GridLocation from, GridLocation to) {
+        Grid grid = model.getGrid();
+        if (!grid.validCoords(from) || !grid.validCoords(to)) {
+            return null;
+        }
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+        int start = from.x + width * from.y;
+        int goal = to.x + width * to.y;
+        if (cost[start] == IMPASSABLE || cost[goal] == IMPASSABLE) {
+            return null;
+        }
+
+        // Bounds of the search
+        int minX = Math.max(0, Math.min(from.x, to.x) - SEARCH_MARGIN);
+        int maxX = Math.min(width - 1, Math.max(from.x, to.x) + SEARCH_MARGIN);
+        int minY = Math.max(0, Math.min(from.y, to.y) - SEARCH_MARGIN);
+        int maxY = Math.min(height - 1, Math.max(from.y, to.y) + SEARCH_MARGIN);
+
+        nextGeneration();
+        heapSize = 0;
+        gScore[start] = 0;
+        cameFrom[start] = -1;
+        seen[start] = generation;
+        push(heuristic(start, to), start);
+
+        while (heapSize > 0) {
+            int cell = pop();
+            if (closed[cell] == generation) {
+                continue; // Stale heap entry
+            }
+            closed[cell] = generation;
+            if (cell == goal) {
+                return buildRoute(goal);
+            }
+            int x = cell % width;
+            int y = cell / width;
+            if (x > minX) relax(cell, cell - 1, to);
+            if (x < maxX) relax(cell, cell + 1, to);
+            if (y > minY) relax(cell, cell - width, to);
+            if (y < maxY) relax(cell, cell + width, to);
+        }
+        return null;
+    }
+
+    /* Consider moving from cell to the neighbor next. */
+    private void relax(int cell, int next, GridLocation to) {
+        byte step = cost[next];
+        if (step == IMPASSABLE || closed[next] == generation) {
+            return;
+        }
+        int g = gScore[cell] + step;
+        if (seen[next] != generation || g < gScore[next]) {
+            seen[next] = generation;
+            gScore[next] = g;
+            cameFrom[next] = cell;
+            push(g + heuristic(next, to), next);
+        }
+    }
+
+    /* Manhattan distance times the cheapest step cost. Never overestimates. */
+    private int heuristic(int cell, GridLocation to) {
+        return ROAD_COST * (Math.abs(cell % width - to.x) + Math.abs(cell / width - to.y));
+    }
+
+    /* Follow the back links from the goal to recover the route. */
+    private int[] buildRoute(int goal) {
+        int length = 0;
+        for (int cell = goal; cell != -1; cell = cameFrom[cell]) {
+            length++;
+        }
+        int[] route = new int[length];
+        for (int cell = goal; cell != -1; cell = cameFrom[cell]) {
+            route[--length] = cell;
+        }
+        return route;
+    }
+
+    /* Start a new search. The stamps only need clearing on wrap-around. */
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+
+    /* Add a cell to the heap. */
+    private void push(int key, int cell) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+            heapCells = Arrays.copyOf(heapCells, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapKeys[i] = heapKeys[parent];
+            heapCells[i] = heapCells[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+    }
+
+    /* Remove and return the cell with the smallest key from the heap. */
+    private int pop() {
+        int result = heapCells[0];
+        int key = heapKeys[--heapSize];
+        int cell = heapCells[heapSize];
+        int i = 0;
+        int half = heapSize >> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapCells[i] = heapCells[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+        return result;
+    }
+}
@@ -0,0 +1,348 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+/**
+ * The coverage of the grid by police and fire stations.
+ *
+ * For each service, the distance from every cell to the nearest cell of a
+ * station of that service is kept, capped at one more than the radius of
+ * the service. The coverage level of a cell is 100 at a station, falling
+ * evenly to 0 just beyond the radius. The distance is the Chebyshev
+ * (chessboard) distance, or the Manhattan distance if the property
+ * cs345opolis.service.metric is MANHATTAN.
+ *
+ * The distances are a distance transform of the stations (Meijster, Roerdink
+ * and Hesselink), which takes two linear passes however many stations
+ * there are. The first pass finds the distance down each column to the
+ * nearest station cell; it runs in parallel strips of columns, going along
+ * the rows of a strip. The second pass finds the distance along each row,
+ * using the column distances; it runs in parallel bands of rows. Since the
+ * distances are capped, a station added or bulldozed only changes the
+ * distances within the cap of it, so only that part of the grid is redone.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class ServiceCoverage implements Cs345Opolis.ModelListener {
+
+    public static final String METRIC_PROP = "cs345opolis.service.metric";
+
+    /** The distances that can be used for coverage. */
+    public enum Metric {
+        CHEBYSHEV,
+        MANHATTAN
+    }
+
+    /** The services, with the type of their stations and their radius. */
+    public enum Service {
+        POLICE(CellType.POLICE, 12),
+        FIRE(CellType.FIRE, 10);
+
+        public final CellType station;
+        public final int radius;
+
+        Service(CellType station, int radius) {
+            this.station = station;
+            this.radius = radius;
+        }
+    }
+
+    private static final int BAND_ROWS = 64;
+    private static final int STRIP_COLUMNS = 256;
+
+    private final Cs345Opolis model;
+    private final boolean manhattan;
+
+    private int width = 0;
+    private int height = 0;
+    private byte[] station = new byte[0]; // 1 + Service ordinal, 0 for none
+    private final byte[][] distance = new byte[Service.values().length][0];
+    private byte[] columns = new byte[0]; // Distances down the columns
+
+    /**
+     * Construct the coverage for the given model. The object must be added
+     * as a listener on the model to be kept current.
+     * @param model the model
+     * @param props the properties for the game
+     */
+    ServiceCoverage(Cs345Opolis model, Properties props) {
+        this.model = model;
+        Metric metric = Metric.valueOf(props.getProperty(METRIC_PROP, "CHEBYSHEV"));
+        this.manhattan = metric == Metric.MANHATTAN;
+    }
+
+    /**
+     * Return the coverage level of a service at the given location.
+     * @param service the service
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the level, from 0 (not covered) to 100 (at a station)
+     */
+    public int level(Service service, int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return 0;
+        int cap = service.radius + 1;
+        return 100 * (cap - distance[service.ordinal()][x + width * y]) / cap;
+    }
+
+    /**
+     * Return the distance from the given location to the nearest station of
+     * a service, capped at one more than the radius of the service.
+     * @param service the service
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the distance, the cap for a location off the grid
+     */
+    public int distance(Service service, int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return service.radius + 1;
+        return distance[service.ordinal()][x + width * y];
+    }
+
+    /**
+     * Recompute the coverage of the whole grid.
+     */
+    public void recomputeAll() {
+        checkSize();
+        for (Service service : Service.values()) {
+            recompute(service, new GridRectangle(0, 0, width, height));
+        }
+    }
+
+    /**
+     * Recompute the distances for a service around a change in its
+     * stations.
+     * @param service the service
+     * @param rect the cells whose stations changed
+     */
+    public void recompute(Service service, GridRectangle rect) {
+        checkSize();
+        int cap = service.radius + 1;
+        transform(service, grow(rect, cap), grow(rect, 2 * cap));
+    }
+
+    /* The rectangle grown by margin on each side, clipped to the grid. */
+    private GridRectangle grow(GridRectangle rect, int margin) {
+        int x0 = Math.max(0, rect.x - margin);
+        int y0 = Math.max(0, rect.y - margin);
+        int x1 = Math.min(width, rect.x + rect.w + margin);
+        int y1 = Math.min(height, rect.y + rect.h + margin);
+        return new GridRectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /* Set the distances of the cells in out, using the stations in window,
+     * which holds every station within the cap of out.
+     */
+    private void transform(Service service, GridRectangle out, GridRectangle window) {
+        int cap = service.radius + 1;
+        byte code = (byte)(service.ordinal() + 1);
+        int w = window.w;
+        int h = window.h;
+        if (columns.length < w * h) {
+            columns = new byte[w * h];
+        }
+        byte[] columns = this.columns;
+
+        // Distance down each column, capped, in strips of columns
+        int strips = (w + STRIP_COLUMNS - 1) / STRIP_COLUMNS;
+        IntStream.range(0, strips).parallel().forEach(strip -> {
+            int x0 = strip * STRIP_COLUMNS;
+            int x1 = Math.min(w, x0 + STRIP_COLUMNS);
+            for (int y = 0; y < h; y++) {
+                int row = window.x + width * (window.y + y);
+                for (int x = x0; x < x1; x++) {
+                    int above = y > 0 ? columns[x + w * (y - 1)] + 1 : cap;
+                    columns[x + w * y] = (byte)(station[row + x] == code ? 0 : Math.min(above, cap));
+                }
+            }
+            for (int y = h - 2; y >= 0; y--) {
+                for (int x = x0; x < x1; x++) {
+                    int below = columns[x + w * (y + 1)] + 1;
+                    if (below < columns[x + w * y]) {
+                        columns[x + w * y] = (byte)below;
+                    }
+                }
+            }
+        });
+
+        // Distance along each row of out, in bands of rows
+        byte[] result = distance[service.ordinal()];
+        int first = out.y - window.y;
+        int bands = (out.h + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int[] at = new int[w];
+            int[] g = new int[w];
+            int[] s = new int[w];
+            int[] t = new int[w];
+            int end = Math.min(first + out.h, first + (band + 1) * BAND_ROWS);
+            for (int y = first + band * BAND_ROWS; y < end; y++) {
+                // Only the columns with a station within the cap count
+                int n = 0;
+                for (int x = 0, i = w * y; x < w; x++, i++) {
+                    if (columns[i] < cap) {
+                        at[n] = x;
+                        g[n] = columns[i];
+                        n++;
+                    }
+                }
+                int row = window.x + width * (window.y + y);
+                if (n == 0) {
+                    Arrays.fill(result, row + out.x - window.x, row + out.x - window.x + out.w,
+                            (byte)cap);
+                } else {
+                    int q = envelope(at, g, n, s, t, w);
+                    for (int x = w - 1; x >= out.x - window.x; x--) {
+                        int i = s[q];
+                        if (x < out.x - window.x + out.w) {
+                            result[row + x] = (byte)Math.min(f(x, at[i], g[i]), cap);
+                        }
+                        if (x == t[q]) {
+                            q--;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /* The second phase of the Meijster transform for one row, over the n
+     * columns at[0 .. n - 1] with column distances g. The columns s[0 .. q]
+     * make up the lower envelope, column s[k] being the nearest from x = t[k]
+     * on, and q is returned.
+     */
+    private int envelope(int[] at, int[] g, int n, int[] s, int[] t, int width) {
+        int q = 0;
+        s[0] = 0;
+        t[0] = 0;
+        for (int u = 1; u < n; u++) {
+            while (q >= 0 && f(t[q], at[s[q]], g[s[q]]) > f(t[q], at[u], g[u])) {
+                q--;
+            }
+            if (q < 0) {
+                q = 0;
+                s[0] = u;
+            } else {
+                int w = 1 + sep(at[s[q]], g[s[q]], at[u], g[u]);
+                if (w < width) {
+                    q++;
+                    s[q] = u;
+                    t[q] = w;
+                }
+            }
+        }
+        return q;
+    }
+
+    /* The distance from x to the nearest station in column i, which is gi
+     * from the row.
+     */
+    private int f(int x, int i, int gi) {
+        if (manhattan) {
+            return Math.abs(x - i) + gi;
+        }
+        return Math.max(Math.abs(x - i), gi);
+    }
+
+    /* The first x at which column u is no farther than column i < u. */
+    private int sep(int i, int gi, int u, int gu) {
+        if (manhattan) {
+            if (gu >= gi + u - i)
+                return Integer.MAX_VALUE / 2;
+            if (gi > gu + u - i)
+                return Integer.MIN_VALUE / 2;
+            return (gu - gi + u + i) / 2;
+        }
+        if (gi <= gu) {
+            return Math.max(i + gu, (i + u) / 2);
+        }
+        return Math.min(u - gi, (i + u) / 2);
+    }
+
+    /**
+     * Recompute the coverage around the cells whose stations changed.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        Service[] services = Service.values();
+        int[] minX = new int[services.length];
+        int[] minY = new int[services.length];
+        int[] maxX = new int[services.length];
+        int[] maxY = new int[services.length];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        Arrays.fill(maxX, -1);
+        Arrays.fill(maxY, -1);
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                byte code = codeOf(grid.cellAt(x, y).getCellType());
+                int i = x + width * y;
+                if (station[i] != code) {
+                    // Both the old and the new service change here
+                    for (byte c : new byte[] { station[i], code }) {
+                        if (c != 0) {
+                            minX[c - 1] = Math.min(minX[c - 1], x);
+                            minY[c - 1] = Math.min(minY[c - 1], y);
+                            maxX[c - 1] = Math.max(maxX[c - 1], x);
+                            maxY[c - 1] = Math.max(maxY[c - 1], y);
+                        }
+                    }
+                    station[i] = code;
+                }
+            }
+        }
+        for (Service service : services) {
+            int s = service.ordinal();
+            if (maxX[s] >= 0) {
+                recompute(service, new GridRectangle(minX[s], minY[s],
+                        maxX[s] - minX[s] + 1, maxY[s] - minY[s] + 1));
+            }
+        }
+    }
+
+    /* The station code of a type of cell. */
+    private static byte codeOf(CellType type) {
+        for (Service service : Service.values()) {
+            if (service.station == type)
+                return (byte)(service.ordinal() + 1);
+        }
+        return 0;
+    }
+
+    /* Make sure the arrays match the grid. */
+    private void checkSize() {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+    }
+
+    /* Allocate the storage for a new grid size. There are no stations, so
+     * every distance is at its cap.
+     */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        station = new byte[width * height];
+        for (Service service : Service.values()) {
+            distance[service.ordinal()] = new byte[width * height];
+            Arrays.fill(distance[service.ordinal()], (byte)(service.radius + 1));
+        }
+    }
+}
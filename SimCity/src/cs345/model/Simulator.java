@@ -6,7 +6,8 @@
 
 package cs345.model;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 import java.util.Properties;
@@ -49,9 +50,10 @@ public class Simulator {
     /**
      * This is an entry in the timer queue. The entry contains the step
      * when the action is to be executed, the sequence number of the action
-     * and the action itself.
+     * and the action itself. Entries are ordered by step, then by sequence
+     * number.
      */
-    private static class QEntry {
+    private static class QEntry implements Comparable<QEntry> {
         int atStep;
         int sequence;
         SimulatorAction action;
@@ -61,6 +63,13 @@ public class Simulator {
             this.sequence = sequence;
             this.action = action;
         }
+
+        @Override public int compareTo(QEntry other) {
+            int stepDif = atStep - other.atStep;
+            if (stepDif != 0)
+                return stepDif;
+            return sequence - other.sequence;
+        }
     }
 
     /* The current step. Step zero is the first period on the epoch date. */
@@ -76,17 +85,7 @@ public class Simulator {
      */
     Simulator(Properties props) {
         setStartTime(props);
-        queue = new PriorityQueue<>(
-                // Comparator for QEntrys
-                new Comparator<QEntry>() {
-                    @Override public int compare(QEntry obj1, QEntry obj2) {
-                        int stepDif = obj1.atStep - obj2.atStep;
-                        if (stepDif != 0)
-                            return stepDif;
-                        return obj1.sequence - obj2.sequence;
-                    }
-                }
-        );
+        queue = new PriorityQueue<>();
     }
 
     /* Set the start time (epoch date) for the simulation. */
@@ -129,6 +128,33 @@ public class Simulator {
         queue.add(new QEntry(atStep, nextSequence++, action));
     }
 
+    /**
+     * Add all the given actions to the simulation, all with the same time
+     * for their first execution. The actions are sequenced in the order
+     * they are returned by the collection, as if addAction had been called
+     * for each one. When there are at least as many actions as queued
+     * entries, the queue is rebuilt from the old and new entries in one
+     * linear heapify rather than by sifting in each new entry.
+     * @param time the time of the actions
+     * @param actions the actions to be executed
+     */
+    public void addActions(SimulatorTime time, Collection<? extends SimulatorAction> actions) {
+        int atStep = time.diff(getStartTime());
+        assert atStep >= curStep : "Scheduling event in past";
+        if (actions.size() < queue.size()) {
+            for (SimulatorAction action : actions) {
+                queue.add(new QEntry(atStep, nextSequence++, action));
+            }
+            return;
+        }
+        ArrayList<QEntry> entries = new ArrayList<>(queue.size() + actions.size());
+        entries.addAll(queue);
+        for (SimulatorAction action : actions) {
+            entries.add(new QEntry(atStep, nextSequence++, action));
+        }
+        queue = new PriorityQueue<>(entries);
+    }
+
     /**
      * Remove the given action from the simulation. If the action occurs
      * multiple times in the simulation, only one occurrence will be
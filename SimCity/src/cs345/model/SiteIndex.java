@@ -0,0 +1,244 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.Arrays;
+
+/**
+ * Index of the sites where a 3x3 zone can be built.
+ *
+ * A site is the center of a 3x3 block of cells that are all buildable. The
+ * index keeps a bitset with one bit per cell marking the sites, along with
+ * the number of sites in each row. The buildable status of each cell is
+ * kept in a byte array so that when part of the grid changes only the
+ * changed cells are read from the grid and only the sites within one cell
+ * of the change are recomputed.
+ *
+ * The nearest sites to a location are found by searching square rings of
+ * increasing size around the location. Rows with no sites are skipped. The
+ * search stops as soon as no site outside the rings searched so far could
+ * be nearer than the sites already found.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class SiteIndex implements Cs345Opolis.ModelListener {
+
+    private final Cs345Opolis model;
+
+    private int width = 0;
+    private int height = 0;
+    private byte[] buildable = new byte[0]; // 1 if the cell is buildable
+    private long[] sites = new long[0]; // Site bit for each cell
+    private int[] rowCount = new int[0]; // Number of sites in each row
+    private int siteCount = 0;
+
+    /**
+     * Construct the site index for the given model. The object must be
+     * added as a listener on the model to be kept current.
+     * @param model the model whose grid is indexed
+     */
+    SiteIndex(Cs345Opolis model) {
+        this.model = model;
+    }
+
+    /**
+     * Return true if a zone centered at the given location can be built.
+     * @param x the x coordinate of the center
+     * @param y the y coordinate of the center
+     * @return true if the location is a site
+     */
+    public boolean isSite(int x, int y) {
+        checkSize();
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+        return get(x + width * y);
+    }
+
+    /**
+     * Return the number of sites on the grid.
+     * @return the number of sites
+     */
+    public int getSiteCount() {
+        checkSize();
+        return siteCount;
+    }
+
+    /**
+     * Find the sites nearest to the given location.
+     *
+     * The sites are returned in order of increasing (Euclidean) distance
+     * from loc. Sites at the same distance are ordered by y and then x.
+     *
+     * @param loc the location to search around
+     * @param k the maximum number of sites to return
+     * @return the nearest sites, fewer than k if there are not k sites
+     * @throws ModelCommandException if loc is not on the grid
+     */
+    public GridLocation[] findNearest(GridLocation loc, int k) throws ModelCommandException {
+        if (!model.getGrid().validCoords(loc)) {
+            throw new ModelCommandException("Invalid location %s", loc);
+        }
+        checkSize();
+        k = Math.min(k, siteCount);
+        if (k <= 0) {
+            return new GridLocation[0];
+        }
+
+        // The best k sites found so far, kept sorted by key
+        long[] best = new long[k];
+        int found = 0;
+        int maxRing = Math.max(Math.max(loc.x, width - 1 - loc.x),
+                Math.max(loc.y, height - 1 - loc.y));
+        for (int r = 0; r <= maxRing; r++) {
+            int top = loc.y - r;
+            int bottom = loc.y + r;
+            int left = Math.max(0, loc.x - r);
+            int right = Math.min(width - 1, loc.x + r);
+            // Top and bottom edges of the ring
+            found = scanRow(loc, top, left, right, best, found);
+            if (r > 0) {
+                found = scanRow(loc, bottom, left, right, best, found);
+            }
+            // Left and right edges of the ring, excluding the corners
+            for (int y = Math.max(0, top + 1); y <= Math.min(height - 1, bottom - 1); y++) {
+                if (rowCount[y] == 0)
+                    continue;
+                if (loc.x - r >= 0 && loc.x - r < width && get(loc.x - r + width * y)) {
+                    found = insert(best, found, key(loc, loc.x - r, y));
+                }
+                if (loc.x + r >= 0 && loc.x + r < width && get(loc.x + r + width * y)) {
+                    found = insert(best, found, key(loc, loc.x + r, y));
+                }
+            }
+            // Sites outside this ring are at least r + 1 away
+            long limit = (long)(r + 1) * (r + 1);
+            if (found == k && (best[k - 1] >>> 32) < limit) {
+                break;
+            }
+        }
+
+        GridLocation[] result = new GridLocation[found];
+        for (int n = 0; n < found; n++) {
+            int index = (int)best[n];
+            result[n] = new GridLocation(index % width, index / width);
+        }
+        return result;
+    }
+
+    /* Add the sites in row y from left to right to best. */
+    private int scanRow(GridLocation loc, int y, int left, int right, long[] best, int found) {
+        if (y < 0 || y >= height || rowCount[y] == 0)
+            return found;
+        for (int x = left; x <= right; x++) {
+            if (get(x + width * y)) {
+                found = insert(best, found, key(loc, x, y));
+            }
+        }
+        return found;
+    }
+
+    /* Sort key for a site: squared distance, then the cell index. */
+    private long key(GridLocation loc, int x, int y) {
+        long dx = x - loc.x;
+        long dy = y - loc.y;
+        return ((dx * dx + dy * dy) << 32) | (x + width * y);
+    }
+
+    /* Insert key into the sorted array best holding found keys. Returns the
+     * new number of keys. The largest key is dropped when best is full.
+     */
+    private static int insert(long[] best, int found, long key) {
+        if (found == best.length) {
+            if (key >= best[found - 1])
+                return found;
+            found--;
+        }
+        int i = found;
+        while (i > 0 && best[i - 1] > key) {
+            best[i] = best[i - 1];
+            i--;
+        }
+        best[i] = key;
+        return found + 1;
+    }
+
+    /**
+     * Update the index for the changed region of the grid.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            resize(grid.getWidth(), grid.getHeight());
+            rect = new GridRectangle(0, 0, width, height);
+        }
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                buildable[x + width * y] = (byte)(grid.cellAt(x, y).isBuildable() ? 1 : 0);
+            }
+        }
+
+        // Sites whose 3x3 block overlaps the change
+        int minX = Math.max(1, rect.x - 1);
+        int maxX = Math.min(width - 2, rect.x + rect.w);
+        int minY = Math.max(1, rect.y - 1);
+        int maxY = Math.min(height - 2, rect.y + rect.h);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int i = x + width * y;
+                boolean site = blockBuildable(i);
+                if (site != get(i)) {
+                    if (site) {
+                        sites[i >>> 6] |= 1L << i;
+                        rowCount[y]++;
+                        siteCount++;
+                    } else {
+                        sites[i >>> 6] &= ~(1L << i);
+                        rowCount[y]--;
+                        siteCount--;
+                    }
+                }
+            }
+        }
+    }
+
+    /* Return true if every cell of the 3x3 block centered at i is buildable. */
+    private boolean blockBuildable(int i) {
+        int above = i - width;
+        int below = i + width;
+        return (buildable[above - 1] & buildable[above] & buildable[above + 1]
+                & buildable[i - 1] & buildable[i] & buildable[i + 1]
+                & buildable[below - 1] & buildable[below] & buildable[below + 1]) != 0;
+    }
+
+    /* Make sure the index matches the size of the grid. */
+    private void checkSize() {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            gridChanged(new GridRectangle(0, 0, grid.getWidth(), grid.getHeight()));
+        }
+    }
+
+    /* Allocate the storage for a new grid size. */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        int size = width * height;
+        if (buildable.length != size) {
+            buildable = new byte[size];
+            sites = new long[(size + 63) >>> 6];
+        } else {
+            Arrays.fill(sites, 0);
+        }
+        rowCount = new int[height];
+        siteCount = 0;
+    }
+
+    private boolean get(int i) {
+        return (sites[i >>> 6] & (1L << i)) != 0;
+    }
+}
@@ -0,0 +1,86 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A Prng using SplitMix64, the algorithm of java.util.SplittableRandom.
+ *
+ * The state is a 64 bit counter and an odd increment, the gamma. Each number
+ * is the counter, advanced by the gamma, passed through a mixing function.
+ * Splitting gives a generator with a new counter and a new gamma, both taken
+ * from this one, as SplittableRandom.split does. The class is implemented
+ * here rather than wrapping SplittableRandom so its state can be saved.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class SplitMixRandom implements Prng {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * Create a generator with the given seed.
+     * @param seed the initial seed
+     */
+    SplitMixRandom(long seed) {
+        setSeed(seed);
+    }
+
+    private SplitMixRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    @Override public void setSeed(long seed) {
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+    }
+
+    @Override public long nextLong() {
+        return mix64(seed += gamma);
+    }
+
+    @Override public int nextInt() {
+        return mix32(seed += gamma);
+    }
+
+    @Override public Prng split() {
+        long newSeed = nextLong();
+        return new SplitMixRandom(newSeed, mixGamma(seed += gamma));
+    }
+
+    @Override public long[] getState() {
+        return new long[] { seed, gamma };
+    }
+
+    @Override public void setState(long[] state) {
+        seed = state[0];
+        gamma = state[1];
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+        return (int)(((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    /* An odd gamma with enough bit transitions to mix well. */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
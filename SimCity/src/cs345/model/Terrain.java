@@ -0,0 +1,143 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import cs345.model.cell.CellType;
+import cs345.model.cell.Dirt;
+import cs345.model.cell.River;
+import cs345.model.cell.Woods;
+
+import java.util.Arrays;
+
+/**
+ * The terrain of a map while it is being generated.
+ *
+ * The terrain is kept as one byte per cell, holding one of the terrain
+ * codes DIRT, RIVER or WOODS. The map generator works entirely on this
+ * buffer. When generation is complete the buffer is copied into the Grid,
+ * which creates the Cell for each location the first time it is used.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class Terrain {
+
+    /* Terrain codes. */
+    public static final byte DIRT = 0;
+    public static final byte RIVER = 1;
+    public static final byte WOODS = 2;
+
+    private final int width;
+    private final int height;
+    private final byte[] cells; // Terrain code for each cell, x + width * y
+
+    /**
+     * Create a terrain of the given size with every cell dirt.
+     * @param width the width
+     * @param height the height
+     */
+    public Terrain(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+    }
+
+    /**
+     * Return the width of the terrain.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Return the height of the terrain.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Return true if the coordinates are inside the terrain.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if x, y is a valid location
+     */
+    public boolean validCoords(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Return the terrain code at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the terrain code
+     */
+    public byte get(int x, int y) {
+        return cells[x + width * y];
+    }
+
+    /**
+     * Set the terrain code at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param code the terrain code
+     */
+    public void set(int x, int y, byte code) {
+        cells[x + width * y] = code;
+    }
+
+    /**
+     * Set every cell to the given terrain code.
+     * @param code the terrain code
+     */
+    public void fill(byte code) {
+        Arrays.fill(cells, code);
+    }
+
+    /* The terrain codes, indexed x + width * y. */
+    byte[] cells() {
+        return cells;
+    }
+
+    /**
+     * Return the terrain code for a cell.
+     * @param cell the cell
+     * @return the terrain code, or -1 if the cell is not terrain
+     */
+    static byte codeOf(Cell cell) {
+        CellType type = cell.getCellType();
+        switch (type) {
+            case DIRT:
+                return DIRT;
+            case RIVER:
+                return RIVER;
+            case WOODS:
+                return WOODS;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Create the Cell for a terrain code.
+     * @param model the model the cell is part of
+     * @param code the terrain code
+     * @param loc the location of the cell
+     * @return the new cell
+     */
+    static Cell newCell(Cs345Opolis model, byte code, GridLocation loc) {
+        switch (code) {
+            case RIVER:
+                return new River(model, loc);
+            case WOODS:
+                return new Woods(model, loc);
+            default:
+                return new Dirt(model, loc);
+        }
+    }
+}
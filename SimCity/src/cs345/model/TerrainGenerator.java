@@ -0,0 +1,129 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.Properties;
+
+/**
+ * A generator for the terrain of new maps.
+ *
+ * The kind of generator used by the game is chosen by the property
+ * cs345opolis.mapgenerator.type: CLASSIC for the micropolis style
+ * MapGenerator (the default) or NOISE for the NoiseMapGenerator.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public interface TerrainGenerator {
+
+    String TYPE_PROP = "cs345opolis.mapgenerator.type";
+
+    /**
+     * The kinds of terrain generator.
+     */
+    enum Type {
+        CLASSIC,
+        NOISE
+    }
+
+    /**
+     * Return the kind of generator selected by the given properties.
+     * @param props the properties for the game
+     * @return the generator type
+     */
+    static Type typeOf(Properties props) {
+        return Type.valueOf(props.getProperty(TYPE_PROP, "CLASSIC"));
+    }
+
+    /**
+     * Create the generator selected by the given properties.
+     * @param props the properties for the game
+     * @return the new generator
+     */
+    static TerrainGenerator newGenerator(Properties props) {
+        switch (typeOf(props)) {
+            case NOISE:
+                return new NoiseMapGenerator(props);
+            case CLASSIC:
+            default:
+                return new MapGenerator(props);
+        }
+    }
+
+    /**
+     * Generate a map in the given terrain buffer.
+     * @param terrain the terrain to be filled
+     */
+    void generateTerrain(Terrain terrain);
+
+    /**
+     * Generate new terrain for part of a map. The generator's sequence of
+     * whole maps is not affected.
+     * @param region the terrain to be filled, the size of the part
+     * @param x the map x coordinate of the left edge of the part
+     * @param y the map y coordinate of the top edge of the part
+     * @param seed the seed for the new terrain
+     */
+    void generateRegion(Terrain region, int x, int y, long seed);
+
+    /**
+     * Smooth the terrain generated by generateRegion into the map around it.
+     * The context is the map around the new terrain, which may be read; only
+     * the cells of rect may change. The default does nothing.
+     * @param context the terrain of the part and the cells around it
+     * @param rect the new terrain within context
+     */
+    default void smoothRegion(Terrain context, GridRectangle rect) {
+    }
+
+    /**
+     * Check if relevant properties have changed. Return true if all the
+     * properties are the same, false otherwise.
+     * @param props the properties to be checked
+     * @return true if properties have not changed
+     */
+    boolean sameProperties(Properties props);
+
+    /**
+     * Return a key that identifies the map the next call of generateTerrain
+     * will produce, apart from its size. Two calls with equal keys produce
+     * the same map. The MapCache stores maps under this key.
+     * @return the key, or null if the next map cannot be reproduced
+     */
+    default String cacheKey() {
+        return null;
+    }
+
+    /**
+     * Return the state the generator is left in by generating a map, saved
+     * with the map in the MapCache.
+     * @return the state
+     */
+    default long[] getState() {
+        return new long[0];
+    }
+
+    /**
+     * Restore a state returned by getState. When a map is taken from the
+     * MapCache instead of being generated, the generator is put in the
+     * state generating it would have left it in, so later maps are the
+     * same either way.
+     * @param state the state
+     */
+    default void setState(long[] state) {
+    }
+
+    /**
+     * Generate a map for the grid of the given model.
+     * @param model the Cs345Opolis model for this map
+     */
+    default void generateMap(Cs345Opolis model) {
+        Grid grid = model.getGrid();
+        Terrain terrain = new Terrain(grid.getWidth(), grid.getHeight());
+        generateTerrain(terrain);
+        grid.setTerrain(terrain);
+    }
+}
@@ -0,0 +1,409 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+import java.util.Arrays;
+
+/**
+ * Labels the separate bodies of water (rivers, lakes, etc.) on the grid.
+ *
+ * Every water cell carries the id of the body of water it belongs to. Two
+ * water cells belong to the same body if they are connected through water
+ * cells that are horizontal or vertical neighbors. Cells that are not water
+ * have id zero. For each body the area, bounding box and shoreline length
+ * are kept. The shoreline length is the number of edges between a cell of
+ * the body and a land cell; the edge of the grid is not shoreline.
+ *
+ * The labels are computed for the whole grid with a two-pass scanline
+ * algorithm when the whole grid changes (a new map). When only part of the
+ * grid changes (a bridge is built or bulldozed) only the bodies touching
+ * the changed cells are relabeled.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class WaterBodies implements Cs345Opolis.ModelListener {
+
+    /* Label for water cells that are waiting to be relabeled. */
+    private static final int PENDING = -1;
+
+    private final Cs345Opolis model;
+
+    private int width = 0;
+    private int height = 0;
+    private int[] labels = new int[0]; // Body id for each cell
+
+    /* Statistics for each body, indexed by body id. Id zero is unused. A
+     * body with zero area is free and its id may be reused.
+     */
+    private int[] area = new int[1];
+    private int[] minX = new int[1];
+    private int[] minY = new int[1];
+    private int[] maxX = new int[1];
+    private int[] maxY = new int[1];
+    private int[] shoreline = new int[1];
+    private int bodyCount = 0;
+
+    /* Free body ids below nextId. */
+    private int[] freeIds = new int[16];
+    private int freeCount = 0;
+    private int nextId = 1;
+
+    /* Working storage for relabeling. */
+    private int[] queue = new int[0];
+    private int[] pending = new int[64];
+    private int pendingCount = 0;
+    private int[] dirty = new int[16];
+    private int dirtyCount = 0;
+
+    /**
+     * Construct the water bodies for the given model. The object must be
+     * added as a listener on the model to be kept current.
+     * @param model the model whose grid is labeled
+     */
+    WaterBodies(Cs345Opolis model) {
+        this.model = model;
+    }
+
+    /**
+     * Return the id of the body of water at the given location.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the body id, or zero if the cell is not water
+     * @throws IndexOutOfBoundsException if the coordinates are not valid
+     */
+    public int getBodyId(int x, int y) {
+        if (!model.getGrid().validCoords(x, y))
+            throw new IndexOutOfBoundsException(
+                    String.format("(%d, %d) is not a valid grid coordinate", x, y));
+        return labels[x + width * y];
+    }
+
+    /**
+     * Return the number of bodies of water.
+     * @return the number of bodies
+     */
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /**
+     * Return the ids of all bodies of water in increasing order.
+     * @return the body ids
+     */
+    public int[] getBodyIds() {
+        int[] ids = new int[bodyCount];
+        int n = 0;
+        for (int id = 1; id < nextId; id++) {
+            if (area[id] > 0) {
+                ids[n++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Return the number of cells in a body of water.
+     * @param id the body id
+     * @return the area, zero if there is no such body
+     */
+    public int getArea(int id) {
+        return id > 0 && id < nextId ? area[id] : 0;
+    }
+
+    /**
+     * Return the bounding box of a body of water.
+     * @param id the body id
+     * @return the bounding rectangle, or null if there is no such body
+     */
+    public GridRectangle getBounds(int id) {
+        if (getArea(id) == 0)
+            return null;
+        return new GridRectangle(minX[id], minY[id],
+                maxX[id] - minX[id] + 1, maxY[id] - minY[id] + 1);
+    }
+
+    /**
+     * Return the shoreline length of a body of water.
+     * @param id the body id
+     * @return the number of water/land edges of the body
+     */
+    public int getShoreline(int id) {
+        return getArea(id) > 0 ? shoreline[id] : 0;
+    }
+
+    /**
+     * Update the labels for the changed region of the grid.
+     * @param rect the rectangle for the changed region
+     */
+    @Override public void gridChanged(GridRectangle rect) {
+        Grid grid = model.getGrid();
+        if (grid.getWidth() != width || grid.getHeight() != height
+                || (rect.w == width && rect.h == height)) {
+            labelAll(grid);
+        } else {
+            relabel(grid, rect);
+        }
+    }
+
+    /* Label the whole grid using two passes over the rows. */
+    private void labelAll(Grid grid) {
+        width = grid.getWidth();
+        height = grid.getHeight();
+        int size = width * height;
+        if (labels.length != size) {
+            labels = new int[size];
+            queue = new int[size];
+        }
+
+        // First pass: provisional labels, equivalences kept in union-find
+        int[] parent = new int[size / 2 + 2];
+        int provisional = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + width * y;
+                if (!grid.cellAt(x, y).isWater()) {
+                    labels[i] = 0;
+                    continue;
+                }
+                int left = x > 0 ? labels[i - 1] : 0;
+                int up = y > 0 ? labels[i - width] : 0;
+                if (left == 0 && up == 0) {
+                    provisional++;
+                    if (provisional == parent.length) {
+                        parent = Arrays.copyOf(parent, 2 * parent.length);
+                    }
+                    parent[provisional] = provisional;
+                    labels[i] = provisional;
+                } else if (left == 0 || up == 0) {
+                    labels[i] = left + up;
+                } else {
+                    labels[i] = left;
+                    union(parent, left, up);
+                }
+            }
+        }
+
+        // Second pass: resolve equivalences to final ids and gather statistics
+        clearBodies(provisional + 1);
+        int[] finalId = new int[provisional + 1];
+        for (int i = 0; i < size; i++) {
+            if (labels[i] != 0) {
+                int root = find(parent, labels[i]);
+                if (finalId[root] == 0) {
+                    finalId[root] = newId();
+                }
+                labels[i] = finalId[root];
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (labels[i] != 0) {
+                addToBody(labels[i], i);
+            }
+        }
+    }
+
+    /* Union-find: find the root of a provisional label. */
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /* Union-find: merge the sets of two provisional labels. */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /* Relabel the bodies touching cells in rect whose water status changed. */
+    private void relabel(Grid grid, GridRectangle rect) {
+        pendingCount = 0;
+        dirtyCount = 0;
+        for (int y = rect.y; y < rect.y + rect.h; y++) {
+            for (int x = rect.x; x < rect.x + rect.w; x++) {
+                int i = x + width * y;
+                boolean water = grid.cellAt(x, y).isWater();
+                if (water == (labels[i] != 0)) {
+                    continue;
+                }
+                if (water) {
+                    labels[i] = PENDING;
+                    addPending(i);
+                    if (x > 0) addDirty(labels[i - 1]);
+                    if (x < width - 1) addDirty(labels[i + 1]);
+                    if (y > 0) addDirty(labels[i - width]);
+                    if (y < height - 1) addDirty(labels[i + width]);
+                } else {
+                    addDirty(labels[i]);
+                    labels[i] = 0;
+                }
+            }
+        }
+        if (pendingCount == 0 && dirtyCount == 0) {
+            return;
+        }
+
+        // Release the dirty bodies, marking their remaining cells pending
+        for (int d = 0; d < dirtyCount; d++) {
+            int id = dirty[d];
+            for (int y = minY[id]; y <= maxY[id]; y++) {
+                for (int x = minX[id]; x <= maxX[id]; x++) {
+                    int i = x + width * y;
+                    if (labels[i] == id) {
+                        labels[i] = PENDING;
+                        addPending(i);
+                    }
+                }
+            }
+            freeId(id);
+        }
+
+        // Flood fill the pending cells into new bodies
+        for (int p = 0; p < pendingCount; p++) {
+            if (labels[pending[p]] == PENDING) {
+                fill(pending[p], newId());
+            }
+        }
+    }
+
+    /* Label the connected pending cells starting at start with id. */
+    private void fill(int start, int id) {
+        int head = 0;
+        int tail = 0;
+        labels[start] = id;
+        queue[tail++] = start;
+        while (head < tail) {
+            int i = queue[head++];
+            addToBody(id, i);
+            int x = i % width;
+            int y = i / width;
+            if (x > 0 && labels[i - 1] == PENDING) {
+                labels[i - 1] = id;
+                queue[tail++] = i - 1;
+            }
+            if (x < width - 1 && labels[i + 1] == PENDING) {
+                labels[i + 1] = id;
+                queue[tail++] = i + 1;
+            }
+            if (y > 0 && labels[i - width] == PENDING) {
+                labels[i - width] = id;
+                queue[tail++] = i - width;
+            }
+            if (y < height - 1 && labels[i + width] == PENDING) {
+                labels[i + width] = id;
+                queue[tail++] = i + width;
+            }
+        }
+    }
+
+    /* Add the cell at index i to the statistics of body id. */
+    private void addToBody(int id, int i) {
+        int x = i % width;
+        int y = i / width;
+        if (area[id] == 0) {
+            minX[id] = maxX[id] = x;
+            minY[id] = maxY[id] = y;
+        } else {
+            minX[id] = Math.min(minX[id], x);
+            maxX[id] = Math.max(maxX[id], x);
+            minY[id] = Math.min(minY[id], y);
+            maxY[id] = Math.max(maxY[id], y);
+        }
+        area[id]++;
+        int shore = 0;
+        if (x > 0 && labels[i - 1] == 0) shore++;
+        if (x < width - 1 && labels[i + 1] == 0) shore++;
+        if (y > 0 && labels[i - width] == 0) shore++;
+        if (y < height - 1 && labels[i + width] == 0) shore++;
+        shoreline[id] += shore;
+    }
+
+    /* Forget all bodies and make room for ids below capacity. */
+    private void clearBodies(int capacity) {
+        if (area.length < capacity) {
+            area = new int[capacity];
+            minX = new int[capacity];
+            minY = new int[capacity];
+            maxX = new int[capacity];
+            maxY = new int[capacity];
+            shoreline = new int[capacity];
+        } else {
+            Arrays.fill(area, 0);
+            Arrays.fill(shoreline, 0);
+        }
+        bodyCount = 0;
+        freeCount = 0;
+        nextId = 1;
+    }
+
+    /* Allocate a body id, reusing a freed one if possible. */
+    private int newId() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == area.length) {
+                int capacity = 2 * area.length;
+                area = Arrays.copyOf(area, capacity);
+                minX = Arrays.copyOf(minX, capacity);
+                minY = Arrays.copyOf(minY, capacity);
+                maxX = Arrays.copyOf(maxX, capacity);
+                maxY = Arrays.copyOf(maxY, capacity);
+                shoreline = Arrays.copyOf(shoreline, capacity);
+            }
+        }
+        area[id] = 0;
+        shoreline[id] = 0;
+        bodyCount++;
+        return id;
+    }
+
+    /* Release a body id. */
+    private void freeId(int id) {
+        area[id] = 0;
+        shoreline[id] = 0;
+        bodyCount--;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, 2 * freeCount);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /* Remember a cell index to be relabeled. */
+    private void addPending(int i) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, 2 * pendingCount);
+        }
+        pending[pendingCount++] = i;
+    }
+
+    /* Remember a body that must be relabeled. Ignores non-bodies and
+     * bodies that are already remembered.
+     */
+    private void addDirty(int id) {
+        if (id <= 0) {
+            return;
+        }
+        for (int d = 0; d < dirtyCount; d++) {
+            if (dirty[d] == id) {
+                return;
+            }
+        }
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, 2 * dirtyCount);
+        }
+        dirty[dirtyCount++] = id;
+    }
+}
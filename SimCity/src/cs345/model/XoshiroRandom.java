@@ -0,0 +1,106 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model;
+
+/**
+ * A Prng using xoshiro256** by David Blackman and Sebastiano Vigna.
+ *
+ * The state is four longs, filled from the seed with SplitMix64 as the
+ * authors recommend. Splitting returns a copy of this generator and then
+ * advances this one by 2^128 steps with the jump function, so the two
+ * never produce overlapping sequences.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class XoshiroRandom implements Prng {
+
+    private static final long[] JUMP = {
+            0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL,
+            0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL };
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    /**
+     * Create a generator with the given seed.
+     * @param seed the initial seed
+     */
+    XoshiroRandom(long seed) {
+        setSeed(seed);
+    }
+
+    private XoshiroRandom(long[] state) {
+        setState(state);
+    }
+
+    @Override public void setSeed(long seed) {
+        s0 = splitMix(seed += 0x9E3779B97F4A7C15L);
+        s1 = splitMix(seed += 0x9E3779B97F4A7C15L);
+        s2 = splitMix(seed += 0x9E3779B97F4A7C15L);
+        s3 = splitMix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    @Override public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override public Prng split() {
+        XoshiroRandom copy = new XoshiroRandom(getState());
+        jump();
+        return copy;
+    }
+
+    /* Advance the generator by 2^128 steps. */
+    private void jump() {
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        for (long word : JUMP) {
+            for (int b = 0; b < 64; b++) {
+                if ((word & (1L << b)) != 0) {
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    t2 ^= s2;
+                    t3 ^= s3;
+                }
+                nextLong();
+            }
+        }
+        s0 = t0;
+        s1 = t1;
+        s2 = t2;
+        s3 = t3;
+    }
+
+    @Override public long[] getState() {
+        return new long[] { s0, s1, s2, s3 };
+    }
+
+    @Override public void setState(long[] state) {
+        s0 = state[0];
+        s1 = state[1];
+        s2 = state[2];
+        s3 = state[3];
+    }
+
+    private static long splitMix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
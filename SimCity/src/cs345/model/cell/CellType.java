@@ -10,6 +10,8 @@ package cs345.model.cell;
  */
 public enum CellType {
     DIRT, WOODS, RIVER,
-    INDUSTRIAL, RESIDENTIAL,
-    ROAD
+    INDUSTRIAL, RESIDENTIAL, COMMERCIAL,
+    ROAD,
+    POWERLINE, POWERPLANT,
+    POLICE, FIRE
 }
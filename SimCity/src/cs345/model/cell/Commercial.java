@@ -0,0 +1,46 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.*;
+
+/**
+ * A cell representing a Commercial zone.
+ *
+ * A commercial zone is a 3x3 grid of cells, all referencing the same zone
+ * instance. Its population is a count of shops, which grows by the shared
+ * rule of Zone with the demand for commerce, up to eight shops, except under
+ * heavy pollution. Each shop provides jobs.
+ *
+ * Commercial zones have CellType COMMERCIAL and are bulldozeable but not
+ * buildable.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class Commercial extends Zone implements SimulatorAction {
+
+   /**
+    * Construct a new Commercial zone.
+    * @param parent The parent game
+    * @param loc the GridLocation of the center of the zone
+    */
+   public Commercial(Cs345Opolis parent, GridLocation loc) {
+      super(parent, loc, ZoneType.COMMERCIAL);
+   }
+
+   /**
+    * Construct a new Commercial zone, optionally leaving the scheduling and the
+    * grid change to the caller.
+    * @param parent The parent game
+    * @param loc the GridLocation of the center of the zone
+    * @param announce if false the zone is not scheduled and no grid change
+    *                 is fired
+    */
+   public Commercial(Cs345Opolis parent, GridLocation loc, boolean announce) {
+      super(parent, loc, ZoneType.COMMERCIAL, announce);
+   }
+}
@@ -0,0 +1,33 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * A cell representing a fire station.
+ *
+ * Fire stations have CellType FIRE.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class FireStation extends ServiceStation {
+
+    /**
+     * Construct a new fire station.
+     * @param parent The parent game
+     * @param loc the GridLocation of the center of the station
+     */
+    public FireStation(Cs345Opolis parent, GridLocation loc) {
+        super(parent, loc);
+    }
+
+    @Override public CellType getCellType() {
+        return CellType.FIRE;
+    }
+}
@@ -0,0 +1,33 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * A cell representing a police station.
+ *
+ * Police stations have CellType POLICE.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class PoliceStation extends ServiceStation {
+
+    /**
+     * Construct a new police station.
+     * @param parent The parent game
+     * @param loc the GridLocation of the center of the station
+     */
+    public PoliceStation(Cs345Opolis parent, GridLocation loc) {
+        super(parent, loc);
+    }
+
+    @Override public CellType getCellType() {
+        return CellType.POLICE;
+    }
+}
@@ -0,0 +1,55 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cell;
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * Cell for power lines.
+ *
+ * Power line cells have CellType POWERLINE, conduct power, are not
+ * buildable and are bulldozeable. Bulldozing a power line restores the
+ * cell that was there before the line was built.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class PowerLine extends SimpleCell {
+
+    private final Cell underCell; // The cell the line was built on
+
+    public PowerLine(Cs345Opolis parent, GridLocation loc) {
+        super(parent, loc);
+        underCell = parent.getGrid().cellAt(loc.x, loc.y);
+    }
+
+    @Override public CellType getCellType() {
+        return CellType.POWERLINE;
+    }
+
+    /**
+     * Return the CellType of the cell the line was built on.
+     * @return the CellType
+     */
+    public CellType getCellTypeUnder() {
+        return underCell.getCellType();
+    }
+
+    @Override public boolean isConductor() {
+        return true;
+    }
+
+    @Override public boolean isBulldozeable() {
+        return true;
+    }
+
+    @Override public void bulldoze() {
+        GridLocation loc = getLocation();
+        parent.getGrid().setCellAt(loc.x, loc.y, underCell);
+    }
+}
@@ -0,0 +1,56 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * A cell representing a power plant.
+ *
+ * A power plant occupies a 3x3 grid of cells, like a zone, and is the
+ * source of power for the power grid. Power plants have no population and
+ * are not updated by the simulator.
+ *
+ * Power plants have CellType POWERPLANT and are bulldozeable but not
+ * buildable.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public class PowerPlant extends Zone {
+
+    /**
+     * Construct a new power plant.
+     * @param parent The parent game
+     * @param loc the GridLocation of the center of the plant
+     */
+    public PowerPlant(Cs345Opolis parent, GridLocation loc) {
+        super(parent, loc);
+    }
+
+    @Override public CellType getCellType() {
+        return CellType.POWERPLANT;
+    }
+
+    @Override public boolean isPowerSource() {
+        return true;
+    }
+
+    /* Power plants are not scheduled with the simulator. */
+    @Override protected void scheduleUpdate() { }
+
+    /* Power plants are not scheduled with the simulator. */
+    @Override protected void unscheduleUpdate() { }
+
+    /**
+     * Power plants have no periodic update.
+     * @return 0, the plant is never rescheduled
+     */
+    @Override public int doAction() {
+        return 0;
+    }
+}
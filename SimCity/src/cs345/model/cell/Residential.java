@@ -34,11 +34,19 @@ public class Residential extends Zone implements SimulatorAction {
     * @param loc the GridLocation of the center of the zone
     */
    public Residential(Cs345Opolis parent, GridLocation loc) {
-      super(parent,loc);
+      super(parent, loc, ZoneType.RESIDENTIAL);
    }
 
-   public CellType getCellType() {
-      return CellType.RESIDENTIAL;
+   /**
+    * Construct a new Residential zone, optionally leaving the scheduling and the
+    * grid change to the caller.
+    * @param parent The parent game
+    * @param loc the GridLocation of the center of the zone
+    * @param announce if false the zone is not scheduled and no grid change
+    *                 is fired
+    */
+   public Residential(Cs345Opolis parent, GridLocation loc, boolean announce) {
+      super(parent, loc, ZoneType.RESIDENTIAL, announce);
    }
 
    /**
@@ -55,45 +63,38 @@ public class Residential extends Zone implements SimulatorAction {
       //Do we want to adjust the population
       if (parent.prngNextInt(2 * SimulatorTime.MONTH) == 0) {
          // 1 in every 8 cycles (random) adjust population
-         // Get a random number 20 .. 60. If we're less than that, add
-         // people. If we're more than that, subtract.
+         // Add people if there is demand for them, subtract them if
+         // there are too many.
       
          int totalToAdd = 0;
          int totalToReduce = 0;
-         int force = 0;
-         int populationDifference = (8 * parent.curIndCount) - parent.curResPop;
+         int force = parent.getDemand().force(CellType.RESIDENTIAL);
          int density = (population / 32) + 1;
-         int populationDelta = parent.prngNextInt(6) + 2;
-         
-         if (populationDifference > populationDelta) {
-            force = 1;
-         } 
-         else if (populationDifference < -populationDelta) {
-            force = -1;
-         } 
-         else {
-            force = 0;
-         }
             
-         if(force == 1 || (force == 0 && density == 1)) {
-            totalToAdd = (3-density)*(parent.prngNextInt(2)+1);
-            population += totalToAdd;
-            fireCellChanged();
+         // Without demand, only sparse zones on good land grow
+         boolean goodLand = parent.getLandValue().at(center.x, center.y) >= LandValue.AVERAGE;
+         if(force == 1 || (force == 0 && density == 1 && goodLand)) {
+            // Zones without power or with heavy pollution do not grow
+            if (isPowered()
+                  && parent.getPollution().at(center.x, center.y) <= PollutionField.HEAVY) {
+               totalToAdd = (3-density)*(parent.prngNextInt(2)+1);
+               // Zones with both police and fire cover grow faster
+               if (coverage(ServiceCoverage.Service.POLICE) > 0
+                     && coverage(ServiceCoverage.Service.FIRE) > 0) {
+                  totalToAdd++;
+               }
+               changePopulation(totalToAdd);
+               fireCellChanged();
+            }
          } 
          else if(force == -1) {
             totalToReduce = density * (parent.prngNextInt(2) + 1);
-            population -= totalToReduce;
-            if(population < 0){
-               population = 0;
-            }
+            changePopulation(-Math.min(totalToReduce, population));
             fireCellChanged();
          }
       }
    // System.out.printf("  pop(new) = %d%n", population);
    
-      // Update total population in parent
-      parent.newResPop += population;
-   
       // Reschedule for next week
       return SimulatorTime.WEEK * Simulator.STEPS_PER_PERIOD;
    }
@@ -23,6 +23,7 @@ public class Road extends SimpleCell  {
    protected Grid grid;      //Initialize a grid which will be used later; 
    protected Cell underCell; //Initialize cell for detecting type;
    protected List<Integer> roadValues; //Initialize to store connection values;
+   private boolean powerLine = false; //True if power lines run along the road
   
     
    public Road(Cs345Opolis parent, GridLocation loc) {
@@ -42,6 +43,24 @@ public class Road extends SimpleCell  {
    @Override public boolean isBulldozeable() {
       return true;
    }
+
+   //A road conducts power only if power lines run along it.
+   @Override public boolean isConductor() {
+      return powerLine;
+   }
+
+   //Return true if power lines run along this road.
+   public boolean hasPowerLine() {
+      return powerLine;
+   }
+
+   //Add or remove the power lines along this road.
+   public void setPowerLine(boolean powerLine) {
+      if (this.powerLine != powerLine) {
+         this.powerLine = powerLine;
+         fireCellChanged();
+      }
+   }
    
    //Method for finding if a road connects to zones.
    //Returns an int
@@ -0,0 +1,49 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * A superclass for the buildings that provide a service, such as police
+ * and fire stations, to the cells around them.
+ *
+ * A station occupies a 3x3 grid of cells, like a zone. The area it serves
+ * is worked out by the ServiceCoverage of the model from the stations on
+ * the grid. Stations have no population and are not updated by the
+ * simulator.
+ *
+ * Stations are bulldozeable but not buildable.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public abstract class ServiceStation extends Zone {
+
+    /**
+     * Construct a new station.
+     * @param parent The parent game
+     * @param loc the GridLocation of the center of the station
+     */
+    protected ServiceStation(Cs345Opolis parent, GridLocation loc) {
+        super(parent, loc);
+    }
+
+    /* Stations are not scheduled with the simulator. */
+    @Override protected void scheduleUpdate() { }
+
+    /* Stations are not scheduled with the simulator. */
+    @Override protected void unscheduleUpdate() { }
+
+    /**
+     * Stations have no periodic update.
+     * @return 0, the station is never rescheduled
+     */
+    @Override public int doAction() {
+        return 0;
+    }
+}
@@ -12,27 +12,114 @@ import java.util.*;
 /**
  * This is a superclass for zone type cells, such as Residential.
  *
+ * Each zone has a ZoneType, which gives its CellType and the fields of the
+ * shared growth rule in doAction. Types that grow some other way, as
+ * residential zones do, override doAction. Structures laid out like zones,
+ * such as power plants, have no ZoneType and give their own CellType.
+ *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
 public abstract class Zone extends Cell implements SimulatorAction {
    protected GridLocation center; // The center row and column of the zone
    protected GridRectangle zoneRect; // The rectangle containing the zone
    protected int population; //Population of the zone
+   protected final ZoneType type; // The type of the zone
  
       
+   /* Construct a structure that is not of a zone type. */
    public Zone(Cs345Opolis parent, GridLocation loc) {
+      this(parent, loc, null, true);
+   }
+
+   public Zone(Cs345Opolis parent, GridLocation loc, ZoneType type) {
+      this(parent, loc, type, true);
+   }
+
+   /**
+    * Construct a zone, optionally leaving the scheduling and the grid change
+    * to the caller. Commands that build many zones at once use this to
+    * schedule all the zones together and report a single grid change.
+    * @param parent The parent game
+    * @param loc the GridLocation of the center of the zone
+    * @param type the type of the zone
+    * @param announce if false the zone is placed in the grid but is not
+    *                 scheduled and no grid change is fired
+    */
+   protected Zone(Cs345Opolis parent, GridLocation loc, ZoneType type, boolean announce) {
       super(parent);
+      this.type = type;
       this.center = loc;
       this.population = 0;
       this.placeZoneInGrid(this);
-      this.scheduleUpdate();
-      this.fireGridChanged();
-   }      
+      if (announce) {
+         this.scheduleUpdate();
+         this.fireGridChanged();
+      }
+   }
      /* Get population of zone. */
    public int getPopulation() {
       return population;
    }
 
+   /** @return the type of the zone, null for a structure such as a power plant */
+   public ZoneType getZoneType() {
+      return type;
+   }
+
+   @Override public CellType getCellType() {
+      return type.cellType;
+   }
+
+   /* Change the population of the zone, reporting the change to the census. */
+   protected void changePopulation(int delta) {
+      population += delta;
+      parent.addToCensus(getCellType(), center, delta);
+   }
+
+   /**
+    * Do the periodic update for the zone.
+    *
+    * About once in two months the population moves one step with the
+    * demand for the zone's type: up to the type's maxPopulation if the zone
+    * is powered and, for cleanAir types, not heavily polluted, or down to
+    * zero.
+    *
+    * The action will be rescheduled for the next week.
+    * @return the steps to the next update
+    */
+   @Override public int doAction() {
+      if (parent.prngNextInt(2 * SimulatorTime.MONTH) == 0) {
+         int force = parent.getDemand().force(type.cellType);
+         if (force == 1) {
+            if (population < type.maxPopulation && isPowered()
+                  && (!type.cleanAir
+                     || parent.getPollution().at(center.x, center.y) <= PollutionField.HEAVY)) {
+               changePopulation(1);
+               fireCellChanged();
+            }
+         }
+         else if (force == -1) {
+            if (population > 0) {
+               changePopulation(-1);
+               fireCellChanged();
+            }
+         }
+      }
+      return SimulatorTime.WEEK * Simulator.STEPS_PER_PERIOD;
+   }
+
+   /**
+    * Damage the zone, as by a flood, losing a share of its population.
+    * @param percent the percentage of the population lost
+    */
+   public void damage(int percent) {
+      int lost = (population * percent + 99) / 100;
+      if (lost > 0) {
+         changePopulation(-lost);
+         fireCellChanged();
+      }
+   }
+
    /** Call fireGridChanged in the parent for this zone.
      */
    protected void fireGridChanged() {
@@ -46,6 +133,7 @@ public abstract class Zone extends Cell implements SimulatorAction {
      */
    @Override public void bulldoze() {
       unscheduleUpdate();
+      changePopulation(-population);
       Grid grid = parent.getGrid();
       for (int x = zoneRect.x; x < zoneRect.x + zoneRect.w; x++) {
          for (int y = zoneRect.y; y < zoneRect.y + zoneRect.h; y ++) {
@@ -58,6 +146,30 @@ public abstract class Zone extends Cell implements SimulatorAction {
    public boolean isBulldozeable() {
       return true;
    }
+
+   /** Zones carry power to their neighbors. */
+   @Override public boolean isConductor() {
+      return true;
+   }
+
+   /**
+    * Return true if the zone has power or if the game does not require
+    * zones to have power.
+    * @return true if the zone may grow
+    */
+   protected boolean isPowered() {
+      PowerGrid power = parent.getPowerGrid();
+      return !power.isRequired() || power.isPowered(center.x, center.y);
+   }
+
+   /**
+    * Return the coverage of the zone by a service, read at its center.
+    * @param service the service
+    * @return the coverage level, from 0 (not covered) to 100
+    */
+   protected int coverage(ServiceCoverage.Service service) {
+      return parent.getServiceCoverage().level(service, center.x, center.y);
+   }
     
     /**
      * @return the rectangle containing this zone
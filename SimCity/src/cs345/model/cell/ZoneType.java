@@ -0,0 +1,128 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.model.cell;
+
+import cs345.model.Cs345Opolis;
+import cs345.model.GridLocation;
+
+/**
+ * The types of zone, each with a small table of what makes it different.
+ *
+ * A zone type gives the name used in commands, the CellType of its cells,
+ * how it is shown, how it grows and what it adds to the census:
+ *   symbol -- the letter for the zone in the text display
+ *   color -- the color of the tool that builds it
+ *   perLevel -- the population shown by each display level
+ *   levels -- the number of display levels, the first being empty
+ *   maxPopulation -- the most a zone grows to under the shared growth rule
+ *   cleanAir -- if true the zone does not grow under heavy pollution
+ *   jobs -- the jobs provided by each unit of population
+ * All zones but residential grow by the shared rule of Zone, which reads
+ * these fields, so a new type is a new entry here and a class with its
+ * constructors. Code that has a CellType and wants its zone type uses of,
+ * which looks it up in a table indexed by the CellType ordinal.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+public enum ZoneType {
+    RESIDENTIAL(CellType.RESIDENTIAL, 'R', "green", 8, 10, Integer.MAX_VALUE, true, 0,
+            Residential::new),
+    COMMERCIAL(CellType.COMMERCIAL, 'C', "royalblue", 1, 9, 8, true, 4,
+            Commercial::new),
+    INDUSTRIAL(CellType.INDUSTRIAL, 'I', "yellow", 1, 6, 5, false, 8,
+            Industrial::new);
+
+    /* Builds a zone of a type. */
+    @FunctionalInterface
+    private interface Factory {
+        Zone make(Cs345Opolis parent, GridLocation loc, boolean announce);
+    }
+
+    public final CellType cellType;
+    public final char symbol;
+    public final String color;
+    public final int perLevel;
+    public final int levels;
+    public final int maxPopulation;
+    public final boolean cleanAir;
+    public final int jobs;
+    private final Factory factory;
+
+    /* The zone type of each CellType, null for cells that are not zones. */
+    private static final ZoneType[] BY_CELL_TYPE = new ZoneType[CellType.values().length];
+
+    static {
+        for (ZoneType type : values()) {
+            BY_CELL_TYPE[type.cellType.ordinal()] = type;
+        }
+    }
+
+    ZoneType(CellType cellType, char symbol, String color, int perLevel, int levels,
+             int maxPopulation, boolean cleanAir, int jobs, Factory factory) {
+        this.cellType = cellType;
+        this.symbol = symbol;
+        this.color = color;
+        this.perLevel = perLevel;
+        this.levels = levels;
+        this.maxPopulation = maxPopulation;
+        this.cleanAir = cleanAir;
+        this.jobs = jobs;
+        this.factory = factory;
+    }
+
+    /**
+     * Return the zone type of a CellType.
+     * @param cellType the CellType
+     * @return the zone type, or null if cells of the type are not zones
+     */
+    public static ZoneType of(CellType cellType) {
+        return BY_CELL_TYPE[cellType.ordinal()];
+    }
+
+    /**
+     * Return the zone type with the given name, as used in commands.
+     * @param name the name, such as "residential"
+     * @return the zone type, or null if there is none of that name
+     */
+    public static ZoneType forName(String name) {
+        for (ZoneType type : values()) {
+            if (type.getName().equals(name))
+                return type;
+        }
+        return null;
+    }
+
+    /**
+     * Return the name of the type as used in commands.
+     * @return the name, in lower case
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Return the display level for a population: the population divided by
+     * perLevel, rounded up and limited to the last level.
+     * @param population the population of a zone
+     * @return the level, from 0 to levels - 1
+     */
+    public int level(int population) {
+        return Math.min((population + perLevel - 1) / perLevel, levels - 1);
+    }
+
+    /**
+     * Build a zone of this type.
+     * @param parent the parent game
+     * @param loc the GridLocation of the center of the zone
+     * @param announce if false the zone is not scheduled and no grid change
+     *                 is fired
+     * @return the new zone
+     */
+    public Zone build(Cs345Opolis parent, GridLocation loc, boolean announce) {
+        return factory.make(parent, loc, announce);
+    }
+}
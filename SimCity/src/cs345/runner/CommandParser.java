@@ -8,6 +8,7 @@ package cs345.runner;
 
 import cs345.model.GridLocation;
 import cs345.model.GridRectangle;
+import cs345.model.ServiceCoverage;
 import cs345.model.Simulator;
 import cs345.model.SimulatorTime;
 
@@ -27,6 +28,10 @@ import java.util.Collections;
  * newgrid
  *     create a new grid for the game. This command is only valid if no steps
  *     have been done
+ * newgrid region x y w h [seed]
+ *     generate new terrain for the rectangle with upper left corner x y,
+ *     width w and height h, using the given seed or a random one. Zones,
+ *     roads and other buildings in the rectangle are kept.
  * step [n [period]]
  *     step the simulator the indicated number of steps. n is the number of
  *     steps, a positive integer. The number n can be followed by a period
@@ -42,17 +47,52 @@ import java.util.Collections;
  *     output the grid to the console. Text runners only.
  * show time
  *     output the current time to the console.
- * show population
- *     output the current population to the console.
+ * show population [x y w h]
+ *     output the current population to the console. With a rectangle,
+ *     output the population, shops and industries of the zones centered in the
+ *     rectangle with upper left corner x y, width w and height h.
  * show industrial
  *     output the current industry count to the console.
+ * show water
+ *     output the area, bounds and shoreline length of each body of water.
+ * show pollution
+ *     output the pollution of each cell of the grid to the console, from
+ *     . for none to 9 for heavy. Text runners only.
+ * show history [from [to]]
+ *     output the population and industries over the years from through to
+ *     (default: the whole game), weekly for recent weeks and averaged over
+ *     months, years or decades for older ones.
  * zone residential x y
  *     create a residential zone centered at the given grid coordinates
  * zone industrial x y
  *     create an industrial zone centered at the given grid coordinates
+ * zone commercial x y
+ *     create a commercial zone centered at the given grid coordinates
+ * zone residential|industrial|commercial near x y
+ *     create a zone of the given type at the site nearest to x y where a
+ *     zone can be built, as found by find site
+ * zone fill residential|industrial|commercial x y w h
+ *     fill the rectangle with upper left corner x y, width w and height h
+ *     with as many zones of the given type as fit on buildable cells
  * road x y w h
  *     build a road starting at the given x y with width w and height h. One
  *     of w and h must be one.
+ * road path x1 y1 x2 y2
+ *     build the cheapest road from x1 y1 to x2 y2. The road goes around
+ *     water and zones and follows existing roads where it can.
+ * find site x y [k]
+ *     show the k (default 1) nearest locations to x y where a zone can be
+ *     built
+ * power plant x y
+ *     build a power plant centered at the given grid coordinates
+ * power line x y w h
+ *     build power lines on the rectangle with upper left corner x y, width w
+ *     and height h. Roads in the rectangle get power lines along the road.
+ * service police|fire x y
+ *     build a police or fire station centered at the given grid coordinates
+ * flood [level]
+ *     flood the land around the rivers up to the given water level (default
+ *     1). The water falls by one level a month.
  * bulldoze x y w h
  *     bulldoze the rectangle bounded by the given coordinates. The coordinates
  *     are assumed to be corners of a rectangle. The left and upper edges of the
@@ -144,7 +184,11 @@ class CommandParser {
                     new CommandData("show", 2, CommandParser::showCommand),
                     new CommandData("zone", 2, CommandParser::zoneCommand),
                     new CommandData("bulldoze", 3, CommandParser::bulldozeCommand),
-                    new CommandData("road", 3, CommandParser::roadCommand)
+                    new CommandData("road", 3, CommandParser::roadCommand),
+                    new CommandData("power", 2, CommandParser::powerCommand),
+                    new CommandData("service", 2, CommandParser::serviceCommand),
+                    new CommandData("find", 1, CommandParser::processFind),
+                    new CommandData("flood", 2, CommandParser::floodCommand)
             ));
 
     /* Process a single command. */
@@ -166,13 +210,40 @@ class CommandParser {
         }
     }
 
+    /* Collection of subcommands for the newgrid command. */
+    private static final Collection<SubcommandData> NEWGRID_COMMANDS =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new SubcommandData("region", 1, CommandParser::newRegionCommand)
+            ));
+
     /* Process a newgrid command. */
     private Command newGridCommand(String command, String[] words) throws CommandException {
-        if (words.length > 1) {
-            throw new CommandException("Extra words in %s command", command);
-        } else {
+        if (words.length == 1) {
             return new NewGridCommand(parent, false);
         }
+        SubcommandData foundCommand = findCommand(NEWGRID_COMMANDS, words[1]);
+        if (foundCommand != null) {
+            return foundCommand.processor.process(this, command, foundCommand.command, words);
+        } else {
+            throw new CommandException("Extra words in %s command", command);
+        }
+    }
+
+    /* Process a newgrid region command. */
+    private Command newRegionCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        GridRectangle rect = getGridRectangle(words, 2);
+        Long seed = null;
+        if (words.length > 7) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        } else if (words.length == 7) {
+            try {
+                seed = Long.parseLong(words[6]);
+            } catch (NumberFormatException ex) {
+                throw new CommandException("Invalid seed %s", words[6]);
+            }
+        }
+        return new NewRegionCommand(parent, rect, seed);
     }
 
     /**
@@ -272,7 +343,10 @@ class CommandParser {
                     new SubcommandData("grid", 2, CommandParser::showGridCommand),
                     new SubcommandData("time", 2, CommandParser::showTimeCommand),
                     new SubcommandData("population", 3, CommandParser::showPopCommand),
-                    new SubcommandData("industrial", 3, CommandParser::showIndCommand)
+                    new SubcommandData("industrial", 3, CommandParser::showIndCommand),
+                    new SubcommandData("water", 2, CommandParser::showWaterCommand),
+                    new SubcommandData("history", 1, CommandParser::showHistoryCommand),
+                    new SubcommandData("pollution", 3, CommandParser::showPollutionCommand)
             ));
 
     /* Process a show command. */
@@ -307,10 +381,13 @@ class CommandParser {
 
     /* Process a show population command. */
     private Command showPopCommand(String command, String subcommand, String[] words) throws CommandException {
-        if (words.length > 2) {
+        if (words.length == 2) {
+            return new ShowPopulationCommand(parent);
+        }
+        if (words.length > 6) {
             throw new CommandException("Too many arguments for %s %s", command, subcommand);
         }
-        return new ShowPopulationCommand(parent);
+        return new ShowPopulationCommand(parent, getGridRectangle(words, 2));
     }
     
     /* Process a show industrial command. */
@@ -321,11 +398,47 @@ class CommandParser {
         return new ShowIndustrialCommand(parent);
     }
     
+    /* Process a show history command. */
+    private Command showHistoryCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        if (words.length > 4) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        Integer[] years = new Integer[2];
+        for (int i = 2; i < words.length; i++) {
+            try {
+                years[i - 2] = Integer.parseInt(words[i]);
+            } catch (NumberFormatException ex) {
+                throw new CommandException("Invalid year %s", words[i]);
+            }
+        }
+        return new ShowHistoryCommand(parent, years[0], years[1]);
+    }
+
+    /* Process a show pollution command. */
+    private Command showPollutionCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        if (words.length > 2) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        return new ShowPollutionCommand(parent);
+    }
+
+    /* Process a show water command. */
+    private Command showWaterCommand(String command, String subcommand, String[] words) throws CommandException {
+        if (words.length > 2) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        return new ShowWaterCommand(parent);
+    }
+
     /* Collections of subcommands for the zone command. */
     private static final Collection<SubcommandData> ZONE_COMMANDS =
             Collections.unmodifiableCollection(Arrays.asList(
                     new SubcommandData("residential", 3, CommandParser::zone2Command),
-                    new SubcommandData("industrial", 3, CommandParser::zone2Command)
+                    new SubcommandData("industrial", 3, CommandParser::zone2Command),
+                    new SubcommandData("commercial", 3, CommandParser::zone2Command),
+                    new SubcommandData("fill", 1, CommandParser::zoneFillCommand)
             ));
 
     /* Process the zone command. */
@@ -341,15 +454,42 @@ class CommandParser {
         }
     }
 
-    /* Process a zone command with a zoneType. */
+    /* Process a zone command with a zoneType, optionally followed by near. */
     private Command zone2Command(String command, String zoneType, String[] words)
             throws CommandException {
-        GridLocation loc = getGridLoc(words, 2);
+        boolean nearest = words.length > 2 && words[2].equals("near");
+        int start = nearest ? 3 : 2;
+        GridLocation loc = getGridLoc(words, start);
 
-        if (words.length > 4) {
+        if (words.length > start + 2) {
             throw new CommandException("Too many arguments for %s %s", command, zoneType);
         }
-        return new ZoneCommand(parent, zoneType, loc);
+        return new ZoneCommand(parent, zoneType, loc, nearest);
+    }
+
+    /* Collection of zone types for the zone fill command. */
+    private static final Collection<CommandString> ZONE_TYPES =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new CommandString("residential", 3),
+                    new CommandString("industrial", 3),
+                    new CommandString("commercial", 3)
+            ));
+
+    /* Process a zone fill command. */
+    private Command zoneFillCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        if (words.length < 3) {
+            throw new CommandException("No zone type specified for %s %s", command, subcommand);
+        }
+        CommandString zoneType = findCommand(ZONE_TYPES, words[2]);
+        if (zoneType == null) {
+            throw new CommandException("Unknown zone type %s", words[2]);
+        }
+        GridRectangle rect = getGridRectangle(words, 3);
+        if (words.length > 7) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        return new ZoneFillCommand(parent, zoneType.command, rect);
     }
 
     /* Process a bulldoze command. */
@@ -362,6 +502,9 @@ class CommandParser {
     }
      /* Process a road command. */
     private Command roadCommand(String command, String[] words) throws CommandException {
+        if (words.length > 1 && findCommand(ROAD_COMMANDS, words[1]) != null) {
+            return roadPathCommand(command, words);
+        }
         GridRectangle rect = getGridRectangle(words, 1);
         if (words.length > 5) {
             throw new CommandException("Too many arguments for %s", command);
@@ -369,6 +512,148 @@ class CommandParser {
         return new RoadCommand(parent, rect);
     }
 
+    /* Collection of subcommands for the road command. */
+    private static final Collection<CommandString> ROAD_COMMANDS =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new CommandString("path", 1)
+            ));
+
+    /* Process a road path command. */
+    private Command roadPathCommand(String command, String[] words) throws CommandException {
+        GridLocation from = getGridLoc(words, 2);
+        GridLocation to = getGridLoc(words, 4);
+        if (words.length > 6) {
+            throw new CommandException("Too many arguments for %s path", command);
+        }
+        return new RoadPathCommand(parent, from, to);
+    }
+
+    /* Collection of subcommands for the find command. */
+    private static final Collection<SubcommandData> FIND_COMMANDS =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new SubcommandData("site", 1, CommandParser::findSiteCommand)
+            ));
+
+    /* Process the find command. */
+    private Command processFind(String command, String[] words) throws CommandException {
+        if (words.length < 2) {
+            throw new CommandException("No option specified for %s", command);
+        }
+        SubcommandData foundCommand = findCommand(FIND_COMMANDS, words[1]);
+        if (foundCommand != null) {
+            return foundCommand.processor.process(this, command, foundCommand.command, words);
+        } else {
+            throw new CommandException("Don't know how to find %s", words[1]);
+        }
+    }
+
+    /* Process a find site command. */
+    private Command findSiteCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        GridLocation loc = getGridLoc(words, 2);
+        int count = 1;
+        if (words.length > 5) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        } else if (words.length == 5) {
+            try {
+                count = Integer.parseInt(words[4]);
+            } catch (NumberFormatException ex) {
+                throw new CommandException("Invalid count %s", words[4]);
+            }
+            if (count <= 0) {
+                throw new CommandException("Invalid count %s", words[4]);
+            }
+        }
+        return new FindSiteCommand(parent, loc, count);
+    }
+
+    /* Collection of subcommands for the power command. */
+    private static final Collection<SubcommandData> POWER_COMMANDS =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new SubcommandData("plant", 1, CommandParser::powerPlantCommand),
+                    new SubcommandData("line", 1, CommandParser::powerLineCommand)
+            ));
+
+    /* Process the power command. */
+    private Command powerCommand(String command, String[] words) throws CommandException {
+        if (words.length < 2) {
+            throw new CommandException("No option specified for %s", command);
+        }
+        SubcommandData foundCommand = findCommand(POWER_COMMANDS, words[1]);
+        if (foundCommand != null) {
+            return foundCommand.processor.process(this, command, foundCommand.command, words);
+        } else {
+            throw new CommandException("Don't know how to build %s %s", command, words[1]);
+        }
+    }
+
+    /* Process a power plant command. */
+    private Command powerPlantCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        GridLocation loc = getGridLoc(words, 2);
+        if (words.length > 4) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        return new PowerPlantCommand(parent, loc);
+    }
+
+    /* Process a power line command. */
+    private Command powerLineCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        GridRectangle rect = getGridRectangle(words, 2);
+        if (words.length > 6) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        return new PowerLineCommand(parent, rect);
+    }
+
+    /* Collection of subcommands for the service command. */
+    private static final Collection<SubcommandData> SERVICE_COMMANDS =
+            Collections.unmodifiableCollection(Arrays.asList(
+                    new SubcommandData("police", 1, CommandParser::serviceStationCommand),
+                    new SubcommandData("fire", 1, CommandParser::serviceStationCommand)
+            ));
+
+    /* Process the service command. */
+    private Command serviceCommand(String command, String[] words) throws CommandException {
+        if (words.length < 2) {
+            throw new CommandException("No option specified for %s", command);
+        }
+        SubcommandData foundCommand = findCommand(SERVICE_COMMANDS, words[1]);
+        if (foundCommand != null) {
+            return foundCommand.processor.process(this, command, foundCommand.command, words);
+        } else {
+            throw new CommandException("Don't know how to build %s %s", command, words[1]);
+        }
+    }
+
+    /* Process a service police or service fire command. */
+    private Command serviceStationCommand(String command, String subcommand, String[] words)
+            throws CommandException {
+        GridLocation loc = getGridLoc(words, 2);
+        if (words.length > 4) {
+            throw new CommandException("Too many arguments for %s %s", command, subcommand);
+        }
+        ServiceCoverage.Service service = subcommand.equals("police")
+                ? ServiceCoverage.Service.POLICE : ServiceCoverage.Service.FIRE;
+        return new ServiceCommand(parent, service, loc);
+    }
+
+    /* Process a flood command. */
+    private Command floodCommand(String command, String[] words) throws CommandException {
+        int level = 1;
+        if (words.length > 2) {
+            throw new CommandException("Too many arguments for %s", command);
+        } else if (words.length == 2) {
+            try {
+                level = Integer.parseInt(words[1]);
+            } catch (NumberFormatException ex) {
+                throw new CommandException("Invalid level %s", words[1]);
+            }
+        }
+        return new FloodCommand(parent, level);
+    }
+
     /* Get a grid location from words starting at start. */
     private GridLocation getGridLoc(String[] words, int start) throws CommandException {
         if (words.length < start + 2) {
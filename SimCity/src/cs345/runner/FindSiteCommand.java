@@ -0,0 +1,49 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridLocation;
+import cs345.model.ModelCommandException;
+import cs345.model.SiteIndex;
+
+/**
+ * Display the sites nearest a location where a zone can be built.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class FindSiteCommand implements Command {
+
+    private Runner runner;
+    private GridLocation loc;
+    private int count;
+
+    FindSiteCommand(Runner runner, GridLocation loc, int count) {
+        this.runner = runner;
+        this.loc = loc;
+        this.count = count;
+    }
+
+    @Override
+    public void run() throws CommandException {
+        SiteIndex index = runner.getModel().getSiteIndex();
+        GridLocation[] sites;
+        try {
+            sites = index.findNearest(loc, count);
+        } catch (ModelCommandException ex) {
+            throw new CommandException(ex);
+        }
+        if (sites.length == 0) {
+            runner.message("No sites for a zone");
+            return;
+        }
+        runner.message("%d sites nearest (%d, %d) of %d", sites.length, loc.x, loc.y,
+                index.getSiteCount());
+        for (GridLocation site : sites) {
+            runner.message("  site (%d, %d)", site.x, site.y);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.ModelFloodCommand;
+
+/**
+ * A flood Command, includes the water level of the flood.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class FloodCommand extends RunnerModelCommand {
+
+    FloodCommand(Runner runner, int level) {
+        super(runner, new ModelFloodCommand(level));
+    }
+}
@@ -9,12 +9,15 @@ package cs345.runner;
 import cs345.model.*;
 import cs345.model.cell.*;
 import javafx.geometry.Rectangle2D;
+import javafx.geometry.VPos;
 import javafx.scene.Node;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
 
 import java.util.Properties;
 
@@ -34,10 +37,18 @@ import java.util.Properties;
  *  (2) Displays images on the grid. The images come from one of three
  *      images loaded by this class. These are background images,
  *      (dirt, river, woods), residential images, and industrial images.
- *      The methods drawBackground, drawResidential, and drawIndustrial
- *      are used to draw the corresponding class of image on the grid.
- *      Passing the Node returned by one of these classes to removeImage
- *      will remove the image from the grid.
+ *      The methods drawBackground and drawZone are used to draw the
+ *      corresponding class of image on the grid. The zone images are kept
+ *      in an array indexed by ZoneType; a type without an image, such as
+ *      commercial, is drawn as a block in the color of its tool. Passing
+ *      the Node returned by one of these methods to removeImage will
+ *      remove the image from the grid.
+ *  (3) Displays the pollution over the grid when it is turned on with
+ *      showPollution. Each cell is covered by a translucent rectangle
+ *      whose opacity shows the pollution as a fraction of
+ *      PollutionField.HEAVY, in the ten levels of the text display. The
+ *      rectangles are in a layer above the grid pane that ignores the
+ *      mouse, and are brought up to date by updatePollution.
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
@@ -61,14 +72,17 @@ class GridDisplay {
     public static final int WOODS_OFFSET = 2;
     public static final int ROAD_OFFSET = 3;
 
+    /* The color of the pollution overlay and its opacity at the last level. */
+    private static final Color POLLUTION_COLOR = Color.SADDLEBROWN;
+    private static final double POLLUTION_OPACITY = 0.6;
+    private static final int POLLUTION_LEVELS = 10;
+
     /* The global properties. Needed for accessing the images. */
     private Properties props;
 
     /* The images for the grid. */
     private Image backgroundTiles = null;
-    private Image resZones = null;
-    private Image indZones = null;
-    
+    private final Image[] zoneImages = new Image[ZoneType.values().length];
 
     /* The associated GuiRunner for this grid. */
     private final GuiRunner runner;
@@ -84,8 +98,14 @@ class GridDisplay {
      */
     private GridTool tool = null;
 
-    /* Rectangle displayed for tool. */
-    private Rectangle toolRect = null;
+    /* Rectangle (or other shape) displayed for tool. */
+    private Shape toolShape = null;
+
+    /* The layer showing the pollution, null until it is first shown. */
+    private Pane pollutionLayer = null;
+    /* The rectangle over each cell and the pollution level it shows. */
+    private Rectangle[] pollutionCells = new Rectangle[0];
+    private int[] pollutionLevels = new int[0];
 
     /**
      * Construct a gridDisplay object.
@@ -119,9 +139,8 @@ class GridDisplay {
         }
 
         backgroundTiles = runner.loadImage(BKG_IMG);
-        resZones = runner.loadImage(RES_IMG);
-        indZones = runner.loadImage(IND_IMG);
-        
+        zoneImages[ZoneType.RESIDENTIAL.ordinal()] = runner.loadImage(RES_IMG);
+        zoneImages[ZoneType.INDUSTRIAL.ordinal()] = runner.loadImage(IND_IMG);
 
         // Capture the mouse events occurring in the group that overlays the
         // grid pane.
@@ -250,33 +269,128 @@ class GridDisplay {
         rect.setY(y * CELL_SIZE);
         rect.setWidth(w * CELL_SIZE + 1);
         rect.setHeight(h * CELL_SIZE + 1);
+        setToolShape(rect);
+    }
 
-        if (rect != toolRect) {
-            if (toolRect != null) {
-                gridContainer.getChildren().remove(toolRect);
+    /** Display the given shape for the tool. The shape is in pixel
+     * coordinates and replaces any currently displayed tool rectangle.
+     *
+     * @param shape the JavaFX shape object
+     */
+    public void setToolShape(Shape shape) {
+        if (shape != toolShape) {
+            if (toolShape != null) {
+                gridContainer.getChildren().remove(toolShape);
             }
-            toolRect = rect;
-            gridContainer.getChildren().add(rect);
+            toolShape = shape;
+            gridContainer.getChildren().add(shape);
         }
     }
 
     /** Clear the tool rectangle so that it is no longer displayed. */
     public void clearToolRect() {
-        if (toolRect != null) {
-            gridContainer.getChildren().remove(toolRect);
+        if (toolShape != null) {
+            gridContainer.getChildren().remove(toolShape);
+        }
+        toolShape = null;
+    }
+    /** Show or hide the pollution over the grid.
+     *
+     * @param show true to show the pollution
+     */
+    public void showPollution(boolean show) {
+        if (show && pollutionLayer == null) {
+            pollutionLayer = new Pane();
+            pollutionLayer.setMouseTransparent(true);
+            int index = gridContainer.getChildren().indexOf(grid);
+            gridContainer.getChildren().add(index + 1, pollutionLayer);
+        }
+        if (pollutionLayer != null) {
+            pollutionLayer.setVisible(show);
+        }
+        updatePollution();
+    }
+
+    /** Bring the pollution shown up to date with the model. Only the cells
+     * whose level has changed are redrawn. Does nothing if the pollution is
+     * not shown.
+     */
+    public void updatePollution() {
+        if (pollutionLayer == null || !pollutionLayer.isVisible())
+            return;
+        Grid grid = model.getGrid();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        if (pollutionCells.length != width * height) {
+            pollutionCells = new Rectangle[width * height];
+            pollutionLevels = new int[width * height];
+            pollutionLayer.getChildren().clear();
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    Rectangle cell = new Rectangle(col * CELL_SIZE, row * CELL_SIZE,
+                            CELL_SIZE, CELL_SIZE);
+                    cell.setFill(Color.TRANSPARENT);
+                    pollutionCells[col + width * row] = cell;
+                }
+            }
+            pollutionLayer.getChildren().addAll(pollutionCells);
+        }
+        PollutionField pollution = model.getPollution();
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int level = (int)Math.min(POLLUTION_LEVELS - 1,
+                        (POLLUTION_LEVELS - 1) * pollution.at(col, row) / PollutionField.HEAVY);
+                if (level != pollutionLevels[col + width * row]) {
+                    pollutionLevels[col + width * row] = level;
+                    pollutionCells[col + width * row].setFill(Color.color(
+                            POLLUTION_COLOR.getRed(), POLLUTION_COLOR.getGreen(),
+                            POLLUTION_COLOR.getBlue(),
+                            POLLUTION_OPACITY * level / (POLLUTION_LEVELS - 1)));
+                }
+            }
         }
-        toolRect = null;
     }
+
     Node drawBackground(int col, int row, int offset) {           
         return drawImage(backgroundTiles, 1, offset, col, row);   
     }
 
-    Node drawResidential(int col, int row, int pop) {
-        return drawImage(resZones, ZONE_SIZE, pop, col, row);
+    Node drawZone(int col, int row, ZoneType type, int level) {
+        Image image = zoneImages[type.ordinal()];
+        if (image != null) {
+            return drawImage(image, ZONE_SIZE, level, col, row);
+        }
+        // Deeper color for a higher level
+        double opacity = 0.2 + 0.8 * level / (type.levels - 1);
+        Rectangle zone = new Rectangle(ZONE_CELL_SIZE - 2, ZONE_CELL_SIZE - 2,
+                Color.web(type.color, opacity));
+        zone.setStroke(Color.web(type.color));
+        zone.setStrokeWidth(2);
+        grid.add(zone, col, row, ZONE_SIZE, ZONE_SIZE);
+        return zone;
+    }
+
+    Node drawPowerLine(int col, int row) {
+        Rectangle line = new Rectangle(CELL_SIZE, CELL_SIZE / 4, Color.GOLD);
+        GridPane.setValignment(line, VPos.CENTER);
+        grid.add(line, col, row);
+        return line;
+    }
+
+    Node drawPowerPlant(int col, int row) {
+        Rectangle plant = new Rectangle(ZONE_CELL_SIZE - 2, ZONE_CELL_SIZE - 2, Color.DIMGRAY);
+        plant.setStroke(Color.GOLD);
+        plant.setStrokeWidth(2);
+        grid.add(plant, col, row, ZONE_SIZE, ZONE_SIZE);
+        return plant;
     }
 
-    Node drawIndustrial(int col, int row, int count) {
-        return drawImage(indZones, ZONE_SIZE, count, col, row);
+    Node drawServiceStation(int col, int row, Color color) {
+        Rectangle station = new Rectangle(ZONE_CELL_SIZE - 2, ZONE_CELL_SIZE - 2, Color.WHITESMOKE);
+        station.setStroke(color);
+        station.setStrokeWidth(2);
+        grid.add(station, col, row, ZONE_SIZE, ZONE_SIZE);
+        return station;
     }
 
     private Node drawImage(Image image, int numCells, int offset, int col, int row) {
@@ -48,6 +48,7 @@ class GuiView implements Cs345Opolis.ModelListener {
     @FXML private MenuItem newGridMenuItem;
     @FXML private MenuItem exitMenuItem;
     @FXML private MenuItem textInputMenuItem;
+    @FXML private CheckMenuItem pollutionMenuItem;
     @FXML private MenuItem runMenuItem;
     @FXML private MenuItem runFastMenuItem;
     @FXML private MenuItem runVeryFastMenuItem;
@@ -65,8 +66,10 @@ class GuiView implements Cs345Opolis.ModelListener {
     /* Tools for editing grid */
     @FXML private ToggleButton resTool;
     @FXML private ToggleButton indTool;
+    @FXML private ToggleButton comTool;
     @FXML private ToggleButton bulldozeTool;
     @FXML private ToggleButton roadTool;
+    @FXML private ToggleButton roadPathTool;
 
     /* The Text object containing the message output. */
     @FXML private Text messageArea;
@@ -86,6 +89,11 @@ class GuiView implements Cs345Opolis.ModelListener {
     /* The GridDisplay object for this view. */
     private GridDisplay gridDisplay;
 
+    /* The cell displayed at each grid location. Used to skip cells that
+     * have not changed when a changed region is reported.
+     */
+    private Cell[] shownCells = new Cell[0];
+
     /* Is the newGridCommand Enabled? */
     private BooleanProperty newGridDisabled;
 
@@ -134,6 +142,7 @@ class GuiView implements Cs345Opolis.ModelListener {
         newGridDisabled.set(true);
 
         textInputMenuItem.setOnAction(e -> inputField.setVisible(!inputField.isVisible()));
+        pollutionMenuItem.setOnAction(e -> gridDisplay.showPollution(pollutionMenuItem.isSelected()));
 
         runMenuItem.setOnAction(e -> runCommand(new RunCommand(parent, RunCommand.StepRate.NORMAL)));
         runFastMenuItem.setOnAction(e -> runCommand(new RunCommand(parent, RunCommand.StepRate.FAST)));
@@ -161,8 +170,10 @@ class GuiView implements Cs345Opolis.ModelListener {
     private void setupTools() {
         resTool.setOnAction(e -> zoneAction(e, "residential"));
         indTool.setOnAction(e -> zoneAction(e, "industrial"));
+        comTool.setOnAction(e -> zoneAction(e, "commercial"));
         bulldozeTool.setOnAction(this::bulldozeAction);
-        roadTool.setOnAction(this::roadAction);
+        roadTool.setOnAction(e -> roadAction(e, false));
+        roadPathTool.setOnAction(e -> roadAction(e, true));
     }
 
     private void zoneAction(ActionEvent event, String zoneType) {
@@ -188,10 +199,10 @@ class GuiView implements Cs345Opolis.ModelListener {
     }
    
     //A method that creates and activates a new road tool. 
-    private void roadAction(ActionEvent event) {
+    private void roadAction(ActionEvent event, boolean pathMode) {
         ToggleButton theButton = (ToggleButton)event.getSource();
         if (theButton.isSelected()) {
-            gridDisplay.setTool(new RoadTool(parent, gridDisplay));
+            gridDisplay.setTool(new RoadTool(parent, gridDisplay, pathMode));
         } else if (toolButtons.getSelectedToggle() == null) {
             gridDisplay.clearTool();
         }
@@ -238,6 +249,8 @@ class GuiView implements Cs345Opolis.ModelListener {
     /**
      * Called when one or more cells in the grid have changed type. This method
      * creates new cell display objects for the grid cells that have changed.
+     * Cells in the region that are already displayed are left alone, so the
+     * region may be a bounding box of a number of scattered changes.
      *
      * @param rect the rectangle for the changed region
      */
@@ -245,10 +258,28 @@ class GuiView implements Cs345Opolis.ModelListener {
     public void gridChanged(GridRectangle rect) {
         GridRectangle zoneRect; // Declaration for later use
         Grid grid = model.getGrid();
+        int width = grid.getWidth();
+        if (shownCells.length != width * grid.getHeight()) {
+            shownCells = new Cell[width * grid.getHeight()];
+        }
         for (int x = rect.x; x < rect.x + rect.w; x++) {
             for (int y = rect.y; y < rect.y + rect.h; y++) {
                 Cell cell = grid.cellAt(x, y);
+                if (shownCells[x + width * y] == cell) {
+                    continue;
+                }
+                shownCells[x + width * y] = cell;
                 CellType cellType = cell.getCellType();
+                if (ZoneType.of(cellType) != null) {
+                    // Only build a new Zone if the given location is
+                    // the upper left hand corner of the zone.
+                    Zone zoneCell = (Zone) cell;
+                    zoneRect = zoneCell.getRectangle();
+                    if (zoneRect.x == x && zoneRect.y == y) {
+                        new ZoneDisplay(gridDisplay, zoneCell);
+                    }
+                    continue;
+                }
                 switch (cellType) {
                     case DIRT:
                         new DirtDisplay(gridDisplay, (Dirt)cell);
@@ -262,22 +293,26 @@ class GuiView implements Cs345Opolis.ModelListener {
                     case ROAD:
                         new RoadDisplay(gridDisplay, (Road)cell);      
                         break;
-                    case RESIDENTIAL:
-                        // Only build a new Zone if the given location is
-                        // the upper left hand corner of the zone.
-                        Residential resCell = (Residential) cell;
-                        zoneRect = resCell.getRectangle();
+                    case POWERLINE:
+                        new PowerLineDisplay(gridDisplay, (PowerLine)cell);
+                        break;
+                    case POWERPLANT:
+                        // Only build a new plant if the given location is
+                        // the upper left hand corner of the plant.
+                        PowerPlant plantCell = (PowerPlant) cell;
+                        zoneRect = plantCell.getRectangle();
                         if (zoneRect.x == x && zoneRect.y == y) {
-                            new ResidentialDisplay(gridDisplay, resCell);
+                            new PowerPlantDisplay(gridDisplay, plantCell);
                         }
                         break;
-                    case INDUSTRIAL:
-                        // Only build a new Zone if the given location is
-                        // the upper left hand corner of the zone.
-                        Industrial indCell = (Industrial) cell;
-                        zoneRect = indCell.getRectangle();
+                    case POLICE:
+                    case FIRE:
+                        // Only build a new station if the given location is
+                        // the upper left hand corner of the station.
+                        ServiceStation stationCell = (ServiceStation) cell;
+                        zoneRect = stationCell.getRectangle();
                         if (zoneRect.x == x && zoneRect.y == y) {
-                           new IndustrialDisplay(gridDisplay, indCell);
+                            new ServiceStationDisplay(gridDisplay, stationCell);
                         }
                         break;
                     default:
@@ -296,11 +331,14 @@ class GuiView implements Cs345Opolis.ModelListener {
     }
 
     /**
-     * Call when the population and or industry changes
+     * Call when the population and or industry changes. The census is taken
+     * at the end of each period, so this also brings the pollution overlay
+     * up to date after the monthly update of the pollution.
      */
     @Override
     public void censusChanged() {
         resPopProperty.set(model.curResPop);
         indPopProperty.set(model.curIndCount);
+        gridDisplay.updatePollution();
     }
 }
@@ -0,0 +1,22 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridRectangle;
+import cs345.model.ModelNewRegionCommand;
+
+/**
+ * A newgrid region Command, generates new terrain for a region of the grid.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class NewRegionCommand extends RunnerModelCommand {
+
+    NewRegionCommand(Runner runner, GridRectangle rect, Long seed) {
+        super(runner, new ModelNewRegionCommand(rect, seed));
+    }
+}
@@ -0,0 +1,22 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridRectangle;
+import cs345.model.ModelPowerLineCommand;
+
+/**
+ * A power line Command, includes the region for the lines.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class PowerLineCommand extends RunnerModelCommand {
+
+    PowerLineCommand(Runner runner, GridRectangle rect) {
+        super(runner, new ModelPowerLineCommand(rect));
+    }
+}
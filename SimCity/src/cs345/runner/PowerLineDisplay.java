@@ -0,0 +1,44 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.Cell;
+import cs345.model.GridLocation;
+import cs345.model.cell.CellType;
+import cs345.model.cell.PowerLine;
+import javafx.scene.Node;
+
+/**
+ * Add power line to a display.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class PowerLineDisplay implements Cell.CellListener {
+
+    private final GridDisplay disp; // The grid display where it is displayed
+    private final Node gridImage; // The background under the line
+    private final Node lineImage; // The line itself
+
+    PowerLineDisplay(GridDisplay disp, PowerLine cell) {
+        this.disp = disp;
+        cell.addListener(this);
+        GridLocation loc = cell.getLocation();
+        int offset = cell.getCellTypeUnder() == CellType.WOODS
+                ? GridDisplay.WOODS_OFFSET : GridDisplay.DIRT_OFFSET;
+        gridImage = disp.drawBackground(loc.x, loc.y, offset);
+        lineImage = disp.drawPowerLine(loc.x, loc.y);
+    }
+
+    @Override
+    public void cellChanged(Cell cell) { }
+
+    @Override
+    public void bulldoze(Cell cell) {
+        disp.removeImage(lineImage);
+        disp.removeImage(gridImage);
+    }
+}
@@ -0,0 +1,22 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridLocation;
+import cs345.model.ModelPowerPlantCommand;
+
+/**
+ * A power plant Command, includes the center of the plant.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class PowerPlantCommand extends RunnerModelCommand {
+
+    PowerPlantCommand(Runner runner, GridLocation loc) {
+        super(runner, new ModelPowerPlantCommand(loc));
+    }
+}
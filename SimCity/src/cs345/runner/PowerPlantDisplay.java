@@ -0,0 +1,38 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.Cell;
+import cs345.model.GridRectangle;
+import cs345.model.cell.PowerPlant;
+import javafx.scene.Node;
+
+/**
+ * Add power plant to a display.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class PowerPlantDisplay implements Cell.CellListener {
+
+    private final GridDisplay disp; // The grid display where it is displayed
+    private final Node gridImage; // The image that is displayed there.
+
+    PowerPlantDisplay(GridDisplay disp, PowerPlant cell) {
+        this.disp = disp;
+        cell.addListener(this);
+        GridRectangle rect = cell.getRectangle();
+        gridImage = disp.drawPowerPlant(rect.x, rect.y);
+    }
+
+    @Override
+    public void cellChanged(Cell cell) { }
+
+    @Override
+    public void bulldoze(Cell cell) {
+        disp.removeImage(gridImage);
+    }
+}
@@ -21,6 +21,7 @@ class RoadDisplay implements Cell.CellListener {
    private final GridDisplay disp; // The grid display where it is displayed
    private final Node gridImage; // The image that is displayed there.
    protected GridLocation loc;   //Initialize for later use;
+   private Node lineImage;       //The power line along the road, if any
       
    RoadDisplay(GridDisplay disp, Road cell) {
       this.disp = disp;
@@ -28,6 +29,7 @@ class RoadDisplay implements Cell.CellListener {
       loc = cell.getLocation(); 
       gridImage = disp.drawBackground(loc.x, loc.y, GridDisplay.ROAD_OFFSET);
       cellMatch(cell);  
+      cellChanged(cell);
    }
    
    /* Method for creating the right road picture 
@@ -45,11 +47,23 @@ class RoadDisplay implements Cell.CellListener {
       }
     }
 
+   //Show or remove the power line along the road.
    @Override
-    public void cellChanged(Cell cell) { }
+    public void cellChanged(Cell cell) {
+      boolean hasLine = ((Road)cell).hasPowerLine();
+      if (hasLine && lineImage == null) {
+         lineImage = disp.drawPowerLine(loc.x, loc.y);
+      } else if (!hasLine && lineImage != null) {
+         disp.removeImage(lineImage);
+         lineImage = null;
+      }
+   }
 
    @Override
     public void bulldoze(Cell cell) {
+      if (lineImage != null) {
+         disp.removeImage(lineImage);
+      }
       disp.removeImage(gridImage);
    }
 }
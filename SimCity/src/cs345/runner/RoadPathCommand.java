@@ -0,0 +1,22 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridLocation;
+import cs345.model.ModelRoadPathCommand;
+
+/**
+ * A road path Command, builds the cheapest road between two locations.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class RoadPathCommand extends RunnerModelCommand {
+
+    RoadPathCommand(Runner runner, GridLocation from, GridLocation to) {
+        super(runner, new ModelRoadPathCommand(from, to));
+    }
+}
@@ -9,13 +9,20 @@ package cs345.runner;
 import cs345.model.GridLocation;
 import cs345.model.GridRectangle;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.Polyline;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
 
 /**
  * Tool for creating a road for the region in the grid.
  *
  * This tool can be used for creating roads in multiple regions.
  *
+ * In path mode, dragging shows the cheapest route from the pressed location
+ * to the mouse instead of a straight line, and releasing the mouse builds
+ * the road along that route.
+ *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
 public class RoadTool extends GridTool {
@@ -23,6 +30,8 @@ public class RoadTool extends GridTool {
    public static final String ROAD_COLOR = "lightgrey";
 
    private Rectangle toolRect = null;
+   private Polyline toolPath = null;
+   private final boolean pathMode;
    private boolean inDisplay = false;
    private GridLocation priorLoc = null;
    private GridLocation pressedLoc = null;
@@ -38,8 +47,21 @@ public class RoadTool extends GridTool {
      * @param display the GridDisplay object for this tool
      */
    RoadTool(GuiRunner runner, GridDisplay display) {
+      this(runner, display, false);
+   }
+
+    /**
+     * Construct a Road tool.
+     * @param runner the associated GuiRunner for this tool
+     * @param display the GridDisplay object for this tool
+     * @param pathMode if true, roads follow the cheapest route between the
+     *                 ends of the drag
+     */
+   RoadTool(GuiRunner runner, GridDisplay display, boolean pathMode) {
       super(runner, display);
+      this.pathMode = pathMode;
       makeRectangle();
+      makePath();
    }
 
     /**
@@ -52,6 +74,39 @@ public class RoadTool extends GridTool {
       toolRect.setStroke(strokeColor);
    }
 
+    /**
+     * Create a toolPath used to display the route in path mode.
+     */
+   private void makePath() {
+      toolPath = new Polyline();
+      toolPath.setStroke(strokeColor);
+      toolPath.setStrokeWidth(GridDisplay.CELL_SIZE * 0.75);
+      toolPath.setStrokeLineCap(StrokeLineCap.SQUARE);
+      toolPath.setStrokeLineJoin(StrokeLineJoin.MITER);
+   }
+
+    /**
+     * Display the route from pressedLoc to loc. If there is no route,
+     * nothing is displayed.
+     *
+     * @param loc the current location of the mouse in grid coordinates
+     */
+   private void displayPath(GridLocation loc) {
+      int[] route = runner.getModel().getRoadRouter().findRoute(pressedLoc, loc);
+      if (route == null) {
+         display.clearToolRect();
+         return;
+      }
+      int width = runner.getModel().getGrid().getWidth();
+      Double[] points = new Double[2 * route.length];
+      for (int i = 0; i < route.length; i++) {
+         points[2 * i] = (route[i] % width + 0.5) * GridDisplay.CELL_SIZE;
+         points[2 * i + 1] = (route[i] / width + 0.5) * GridDisplay.CELL_SIZE;
+      }
+      toolPath.getPoints().setAll(points);
+      display.setToolShape(toolPath);
+   }
+
     /**
      * Utility routine for displaying the rectangle. This routine determines the
      * size and location of the rectangle before calling the GridDisplay object
@@ -69,6 +124,9 @@ public class RoadTool extends GridTool {
          if (pressedLoc == null) {
             display.setToolRect(toolRect, loc, 1, 1);
          } 
+         else if (pathMode) {
+            displayPath(loc);
+         }
          else {
             int rectX = Math.min(loc.x, pressedLoc.x);
             int rectY = Math.min(loc.y, pressedLoc.y);
@@ -152,7 +210,10 @@ public class RoadTool extends GridTool {
    @Override
     public void onMouseReleased(GridLocation loc) {
         // System.out.printf("MouseReleased %s%n", loc);
-      if (loc != null && pressedLoc != null) {
+      if (loc != null && pressedLoc != null && pathMode) {
+         runner.runCommand(new RoadPathCommand(runner, pressedLoc, loc));
+      }
+      else if (loc != null && pressedLoc != null) {
          int rectX = Math.min(loc.x, pressedLoc.x);
          int rectY = Math.min(loc.y, pressedLoc.y);
          int width = Math.abs(loc.x - pressedLoc.x) + 1;
@@ -0,0 +1,24 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridLocation;
+import cs345.model.ModelServiceCommand;
+import cs345.model.ServiceCoverage;
+
+/**
+ * A service station Command, includes the service and the center of the
+ * station.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class ServiceCommand extends RunnerModelCommand {
+
+    ServiceCommand(Runner runner, ServiceCoverage.Service service, GridLocation loc) {
+        super(runner, new ModelServiceCommand(service, loc));
+    }
+}
@@ -0,0 +1,41 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.Cell;
+import cs345.model.GridRectangle;
+import cs345.model.cell.CellType;
+import cs345.model.cell.ServiceStation;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * Add a police or fire station to a display.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class ServiceStationDisplay implements Cell.CellListener {
+
+    private final GridDisplay disp; // The grid display where it is displayed
+    private final Node gridImage; // The image that is displayed there.
+
+    ServiceStationDisplay(GridDisplay disp, ServiceStation cell) {
+        this.disp = disp;
+        cell.addListener(this);
+        GridRectangle rect = cell.getRectangle();
+        Color color = cell.getCellType() == CellType.POLICE ? Color.ROYALBLUE : Color.FIREBRICK;
+        gridImage = disp.drawServiceStation(rect.x, rect.y, color);
+    }
+
+    @Override
+    public void cellChanged(Cell cell) { }
+
+    @Override
+    public void bulldoze(Cell cell) {
+        disp.removeImage(gridImage);
+    }
+}
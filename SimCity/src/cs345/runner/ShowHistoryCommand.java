@@ -0,0 +1,50 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.CensusHistory;
+import cs345.model.SimulatorTime;
+
+import java.util.List;
+
+/**
+ * Display the history of the population and industries, for all the game
+ * or for a range of years, at the finest resolution held.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class ShowHistoryCommand implements Command {
+
+    private Runner runner;
+    private Integer fromYear; // First year shown, null for all
+    private Integer toYear; // Last year shown, null for the current year
+
+    ShowHistoryCommand(Runner runner, Integer fromYear, Integer toYear) {
+        this.runner = runner;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+    }
+
+    @Override
+    public void run() {
+        CensusHistory history = runner.getModel().getCensusHistory();
+        int from = fromYear == null ? 0 : history.periodOf(
+                new SimulatorTime.TimeData(fromYear, SimulatorTime.Month.JAN, 0));
+        int to = toYear == null ? history.getPeriods() : history.periodOf(
+                new SimulatorTime.TimeData(toYear + 1, SimulatorTime.Month.JAN, 0));
+        List<CensusHistory.Sample> samples = history.samples(from, to);
+        if (samples.isEmpty()) {
+            runner.message("No history");
+            return;
+        }
+        for (CensusHistory.Sample sample : samples) {
+            runner.message("  %-6s %s: population %d industries %d",
+                    sample.resolution.name().toLowerCase(), history.timeOf(sample.period),
+                    sample.population, sample.industries);
+        }
+    }
+}
@@ -6,22 +6,42 @@
 
 package cs345.runner;
 
+import cs345.model.CensusIndex;
+import cs345.model.GridRectangle;
+import cs345.model.cell.CellType;
+
 /**
- * Display the total population.
+ * Display the total population, or the population, shops and industries of
+ * the zones centered in a rectangle.
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
 class ShowPopulationCommand implements Command {
 
     private Runner runner;
+    private GridRectangle rect;
 
     ShowPopulationCommand(Runner runner) {
+        this(runner, null);
+    }
+
+    ShowPopulationCommand(Runner runner, GridRectangle rect) {
         this.runner = runner;
+        this.rect = rect;
     }
 
     @Override
     public void run() {
-        // Show the current population
-        runner.message("total population %d", runner.getModel().curResPop);
+        if (rect == null) {
+            // Show the current population
+            runner.message("total population %d", runner.getModel().curResPop);
+            return;
+        }
+        // Show the current population of the rectangle
+        CensusIndex index = runner.getModel().getCensusIndex();
+        runner.message("population %d shops %d industries %d in %s",
+                index.population(CellType.RESIDENTIAL, rect),
+                index.population(CellType.COMMERCIAL, rect),
+                index.population(CellType.INDUSTRIAL, rect), rect);
     }
 }
@@ -0,0 +1,37 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridRectangle;
+import cs345.model.WaterBodies;
+
+/**
+ * Display the bodies of water.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class ShowWaterCommand implements Command {
+
+    private Runner runner;
+
+    ShowWaterCommand(Runner runner) {
+        this.runner = runner;
+    }
+
+    @Override
+    public void run() {
+        // Show each body of water
+        WaterBodies water = runner.getModel().getWaterBodies();
+        runner.message("%d bodies of water", water.getBodyCount());
+        for (int id : water.getBodyIds()) {
+            GridRectangle bounds = water.getBounds(id);
+            runner.message("  water %d: area %d, shoreline %d, (%d, %d) %dx%d",
+                    id, water.getArea(id), water.getShoreline(id),
+                    bounds.x, bounds.y, bounds.w, bounds.h);
+        }
+    }
+}
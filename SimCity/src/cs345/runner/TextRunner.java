@@ -122,6 +122,13 @@ public class TextRunner implements Runner {
         view.displayGrid();
     }
 
+    /**
+     * Display the pollution over the grid.
+     */
+    public void displayPollution() {
+        view.displayPollution();
+    }
+
     /** Determine if initMap is available.
      *
      * @return true if initMap will initialize a new map
@@ -8,9 +8,9 @@ package cs345.runner;
 
 import cs345.model.*;
 import cs345.model.cell.CellType;
-import cs345.model.cell.Industrial;
-import cs345.model.cell.Residential;
 import cs345.model.cell.Road;
+import cs345.model.cell.Zone;
+import cs345.model.cell.ZoneType;
 
 import java.io.PrintStream;
 import java.util.*;
@@ -92,9 +92,14 @@ class TextView {
         CELL_TYPE_STRING_MAP.put(CellType.DIRT, "..");
         CELL_TYPE_STRING_MAP.put(CellType.RIVER, "~~");
         CELL_TYPE_STRING_MAP.put(CellType.WOODS, "TT");
-        CELL_TYPE_STRING_MAP.put(CellType.RESIDENTIAL, "R?");
-        CELL_TYPE_STRING_MAP.put(CellType.INDUSTRIAL, "I?");
         CELL_TYPE_STRING_MAP.put(CellType.ROAD, "++");
+        CELL_TYPE_STRING_MAP.put(CellType.POWERLINE, "==");
+        CELL_TYPE_STRING_MAP.put(CellType.POWERPLANT, "PP");
+        CELL_TYPE_STRING_MAP.put(CellType.POLICE, "PD");
+        CELL_TYPE_STRING_MAP.put(CellType.FIRE, "FD");
+        for (ZoneType type : ZoneType.values()) {
+            CELL_TYPE_STRING_MAP.put(type.cellType, type.symbol + "?");
+        }
     }
 
     /** Display the grid for the game.
@@ -109,59 +114,31 @@ class TextView {
         StringBuilder temp = new StringBuilder();
 
         //Header line
-        temp.append("  ");
-        for (int col = 0; col < nCols; col++) {
-            if (col > 0 && (col % 10) == 0 ) {
-                temp.append(col % 100);
-            } else {
-                temp.append(String.format("%2d", col % 10));
-            }
-        }
-        message(temp.toString());
+        message(headerLine(nCols));
 
         // Lines showing the grid
         for (int row = 0; row < nRows; row++) {
             temp.setLength(0);
-            if (row > 0 && (row % 10) == 0 ) {
-                temp.append(row % 100);
-            } else {
-                temp.append(String.format("%2d", row % 10));
-            }
+            temp.append(rowLabel(row));
             for (int col = 0; col < nCols; col++) {
                 Cell cell = grid.cellAt(col, row);
                 CellType cellType = cell.getCellType();
                 String cellString = CELL_TYPE_STRING_MAP.get(cellType);
-                // For RESIDENTIAL zones, the population / 8 is added to the
-                // output.
-                if (cellType == CellType.RESIDENTIAL) {
-                    // Add population to output
-                    Residential resCell = (Residential)cell;
-                    GridRectangle rect = resCell.getRectangle();
-                    if (col == rect.x + rect.w - 1 && row == rect.y + rect.h - 1) {
-                        cellString = String.format("%2d", resCell.getPopulation());
-                    } else {
-                        int resPop = (resCell.getPopulation() + 7) / 8;
-                        char popChar;
-                        if (resPop == 0)
-                            popChar = ' ';
-                        else if (resPop <= 9)
-                            popChar = Integer.toString(resPop).charAt(0);
-                        else
-                            popChar = '+';
-                        cellString = cellString.replace('?', popChar);
-                    }
-                 }
-                 if (cellType == CellType.INDUSTRIAL) {
-                    //Add industries count to output
-                    Industrial indCell = (Industrial) cell;
-                    GridRectangle rect = indCell.getRectangle();
-                    int indCount = indCell.getPopulation();
-                    char countChar = Integer.toString(indCount).charAt(0);
-                    if (indCount != 0) {
-                        cellString = cellString.replace('?', countChar);
-                    } else {
-                        cellString = cellString.replace('?', ' ');
-                    }
+                // Roads carrying power lines are shown as "+=".
+                if (cellType == CellType.ROAD && ((Road)cell).hasPowerLine()) {
+                    cellString = "+=";
+                }
+                // Zones show their population, in units of the perLevel of
+                // their type, in place of the '?'. Where one digit stands for
+                // more than one, the lower right cell shows the population.
+                if (ZoneType.of(cellType) != null) {
+                    cellString = zoneString((Zone)cell, col, row, cellString);
+                }
+                 // Cells on fire are shown as "**" and flooded cells as "::".
+                 if (game.getForest().isBurning(col, row)) {
+                    cellString = "**";
+                 } else if (game.getFloods().isFlooded(col, row)) {
+                    cellString = "::";
                  }
                  if (cellType == CellType.ROAD){
                     Road roadCell = (Road) cell;
@@ -178,6 +155,70 @@ class TextView {
         message("");
     }
 
+    /* The string for one cell of a zone, given the string for its type. */
+    private static String zoneString(Zone zone, int col, int row, String typeString) {
+        ZoneType type = zone.getZoneType();
+        GridRectangle rect = zone.getRectangle();
+        if (type.perLevel > 1 && col == rect.x + rect.w - 1 && row == rect.y + rect.h - 1) {
+            return String.format("%2d", zone.getPopulation());
+        }
+        int units = (zone.getPopulation() + type.perLevel - 1) / type.perLevel;
+        char unitChar;
+        if (units == 0)
+            unitChar = ' ';
+        else if (units <= 9)
+            unitChar = Integer.toString(units).charAt(0);
+        else
+            unitChar = '+';
+        return typeString.replace('?', unitChar);
+    }
+
+    /** Display the pollution over the grid. Each cell shows its pollution
+     * as a fraction of PollutionField.HEAVY, from 0 (clean, shown as '.')
+     * to 9 (heavy or worse).
+     */
+    void displayPollution() {
+        Grid grid = game.getGrid();
+        PollutionField pollution = game.getPollution();
+        int nRows = grid.getHeight();
+        int nCols = grid.getWidth();
+
+        message(headerLine(nCols));
+        StringBuilder temp = new StringBuilder();
+        for (int row = 0; row < nRows; row++) {
+            temp.setLength(0);
+            temp.append(rowLabel(row));
+            for (int col = 0; col < nCols; col++) {
+                int level = (int)Math.min(9, 9 * pollution.at(col, row) / PollutionField.HEAVY);
+                temp.append(level == 0 ? " ." : String.format("%2d", level));
+            }
+            message(temp.toString());
+        }
+        message("");
+    }
+
+    /* The line of column numbers above the grid. */
+    private static String headerLine(int nCols) {
+        StringBuilder temp = new StringBuilder("  ");
+        for (int col = 0; col < nCols; col++) {
+            if (col > 0 && (col % 10) == 0 ) {
+                temp.append(col % 100);
+            } else {
+                temp.append(String.format("%2d", col % 10));
+            }
+        }
+        return temp.toString();
+    }
+
+    /* The row number at the start of a line of the grid. */
+    private static String rowLabel(int row) {
+        if (row > 0 && (row % 10) == 0 ) {
+            return Integer.toString(row % 100);
+        } else {
+            return String.format("%2d", row % 10);
+        }
+    }
+
 //    /* Print a command. For testing purposes. */
 //    private void printCommand(String command, String[] words) {
 //        message(String.format("Command %s: %s%n",
@@ -10,7 +10,8 @@ import cs345.model.GridLocation;
 import cs345.model.ModelZoneCommand;
 
 /**
- * A zone Command, includes the type of zone to be created.
+ * A zone Command, includes the type of zone to be created and whether it
+ * is built at the site nearest the location instead of at the location.
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
@@ -19,4 +20,9 @@ class ZoneCommand extends RunnerModelCommand {
     ZoneCommand(Runner runner, String zoneType, GridLocation loc) {
         super(runner, new ModelZoneCommand(zoneType, loc));
     }
+
+    ZoneCommand(Runner runner, String zoneType, GridLocation loc, boolean nearest) {
+        super(runner, nearest ? ModelZoneCommand.nearest(zoneType, loc)
+                : new ModelZoneCommand(zoneType, loc));
+    }
 }
\ No newline at end of file
@@ -8,43 +8,43 @@ package cs345.runner;
 
 import cs345.model.Cell;
 import cs345.model.GridRectangle;
-import cs345.model.cell.Industrial;
+import cs345.model.cell.Zone;
 import javafx.scene.Node;
 
 /**
- * Add river (water) to a display.
+ * Add a zone of any type to a display. The image shown is chosen by the
+ * display level of the zone's population, from its ZoneType.
  *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
-class IndustrialDisplay implements Cell.CellListener {
+class ZoneDisplay implements Cell.CellListener {
 
     private final GridDisplay disp; // The grid display where it is displayed
     private Node gridImage = null; // The image that is displayed there.
     private int offset = -1; // The offset that is currently displayed.
 
-    IndustrialDisplay(GridDisplay disp, Industrial cell) {
+    ZoneDisplay(GridDisplay disp, Zone cell) {
         this.disp = disp;
         cell.addListener(this);
         updateImage(cell);
     }
 
-    private void updateImage(Industrial cell) {
-        int indCount = cell.getPopulation();
-        indCount = Math.min(indCount, 5);
-        if (indCount != offset) {
-            // Number of industries changed. Update image.
+    private void updateImage(Zone cell) {
+        int level = cell.getZoneType().level(cell.getPopulation());
+        if (level != offset) {
+            // Population level changed. Update image.
             if (gridImage != null) {
                 disp.removeImage(gridImage);
             }
             GridRectangle rect = cell.getRectangle();
-            offset = indCount;
-            gridImage = disp.drawIndustrial(rect.x, rect.y, offset);
+            offset = level;
+            gridImage = disp.drawZone(rect.x, rect.y, cell.getZoneType(), offset);
         }
     }
 
     @Override
     public void cellChanged(Cell cell) {
-        updateImage((Industrial)cell);
+        updateImage((Zone)cell);
     }
 
     @Override
@@ -0,0 +1,22 @@
+/* This work by Christopher Reedy, email address: Chris.Reedy@wwu.edu,
+ * is licensed under the Creative Commons Attribution 4.0 International
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/4.0/.
+ */
+
+package cs345.runner;
+
+import cs345.model.GridRectangle;
+import cs345.model.ModelZoneFillCommand;
+
+/**
+ * A zone fill Command, tiles a region with zones of the given type.
+ *
+ * @author Chris Reedy (Chris.Reedy@wwu.edu)
+ */
+class ZoneFillCommand extends RunnerModelCommand {
+
+    ZoneFillCommand(Runner runner, String zoneType, GridRectangle rect) {
+        super(runner, new ModelZoneFillCommand(zoneType, rect));
+    }
+}
@@ -10,6 +10,8 @@ package cs345.runner;
 import cs345.model.Cs345Opolis;
 import cs345.model.Grid;
 import cs345.model.GridLocation;
+import cs345.model.GridRectangle;
+import cs345.model.cell.ZoneType;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Rectangle;
@@ -17,15 +19,13 @@ import javafx.scene.shape.Rectangle;
 /**
  * A tool for placing a Zone on the Grid.
  *
+ * Clicking places a single zone centered on the clicked cell. Dragging
+ * selects a rectangle which is filled with as many zones as fit.
+ *
  * @author Chris Reedy (Chris.Reedy@wwu.edu)
  */
 public class ZoneTool extends GridTool {
 
-    /** Color for a Residential tool. */
-    public static final String RESIDENTIAL_COLOR = "green";
-    /** Color for an Industrial tools. */
-    public static final String INDUSTRIAL_COLOR = "yellow";
-
     /** The type of zone. */
     final String zoneType;
 
@@ -33,6 +33,7 @@ public class ZoneTool extends GridTool {
     private boolean inDisplay = false;
     private GridLocation priorLoc = null;
     private GridLocation pressedLoc = null;
+    private GridLocation dragStart = null; // Start of a fill drag, if any
 
     /* The actual JavaFX color objects for the fill (toolColor) and boundary
      * (strokeColor) of the tool.
@@ -57,13 +58,11 @@ public class ZoneTool extends GridTool {
 
     /* Internal utility to get the color given the type of zone. */
     private String getToolColorName(String zoneType) {
-        if (zoneType.equals("residential")) {
-            return RESIDENTIAL_COLOR;
-        }else if (zoneType.equals("industrial")) {
-            return INDUSTRIAL_COLOR;
-        }else{
+        ZoneType type = ZoneType.forName(zoneType);
+        if (type == null) {
             throw new IllegalArgumentException("Invalid type of zone");
         }
+        return type.color;
     }
 
     private void displayRect(GridLocation loc) {
@@ -88,6 +87,7 @@ public class ZoneTool extends GridTool {
         inDisplay = false;
         display.clearToolRect();
         priorLoc = null;
+        dragStart = null;
     }
 
     @Override
@@ -137,12 +137,33 @@ public class ZoneTool extends GridTool {
         pressedLoc = loc;
     }
 
+    @Override
+    public void onMouseReleased(GridLocation loc) {
+        // System.out.printf("MouseReleased %s%n", loc);
+        if (dragStart != null && loc != null) {
+            Command cmd = new ZoneFillCommand(runner, zoneType, dragRect(loc));
+            runner.runCommand(cmd);
+            priorLoc = null;
+        }
+        dragStart = null;
+    }
+
     @Override
     public void onMouseDragged(GridLocation loc) {
         // System.out.printf("MouseDragged %s%n", loc);
         if (pressedLoc != null && !pressedLoc.equals(loc)) {
-            // Mouse was dragged to a new location
+            // Mouse was dragged to a new location, start filling
+            dragStart = pressedLoc;
             pressedLoc = null;
         }
+        if (dragStart != null && loc != null) {
+            display.setToolRect(toolRect, dragRect(loc));
+        }
+    }
+
+    /* The rectangle from the start of the drag to loc. */
+    private GridRectangle dragRect(GridLocation loc) {
+        return new GridRectangle(Math.min(loc.x, dragStart.x), Math.min(loc.y, dragStart.y),
+                Math.abs(loc.x - dragStart.x) + 1, Math.abs(loc.y - dragStart.y) + 1);
     }
 }